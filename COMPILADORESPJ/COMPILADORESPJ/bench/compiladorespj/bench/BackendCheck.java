@@ -0,0 +1,154 @@
+package compiladorespj.bench;
+
+import compiladorespj.BatchCompiler;
+import compiladorespj.CompilerOptions;
+import compiladorespj.CompilerStats;
+import compiladorespj.JvmProgram;
+import compiladorespj.VirtualMachine;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+// Small programs every backend has to agree on. Each is compiled to C++ as at -O0, built with the
+// external compiler at -O0, which keeps a division whose result is unused, and run; that output is
+// the reference, and the C++ generated at -O1, VirtualMachine and JvmProgram have to print the same
+// at every optimization level. A program that stops with a runtime error counts as printing TRAP,
+// whatever it wrote before.
+public final class BackendCheck {
+    private record Case(String name, String source) { }
+
+    private static final String TRAP = "<erro de execucao>\n";
+
+    // intero expressions stored into a decimale, which stay intero arithmetic and are only widened
+    // on the store: 7 diviso 2 is 3, not 3,5. k and the comparison check that nothing else is
+    // overwritten on the way.
+    static final Case INT_INTO_DECIMAL = new Case("intero em decimale",
+        "programma conversao\n"
+        + "  var v1: intero assegna 3.\n"
+        + "  var k: intero assegna 11.\n"
+        + "  var d: decimale assegna 7 diviso 2.\n"
+        + "  var v2: decimale assegna (v1 piu (v1 moltiplica v1)).\n"
+        + "  var r: decimale.\n"
+        + "  r assegna k % 4.\n"
+        + "  d assegna d piu v1 diviso 2.\n"
+        + "  se (v2 maggiore 11,5) allora\n"
+        + "    scrivi(\"maior\").\n"
+        + "  altrimenti\n"
+        + "    scrivi(\"menor\").\n"
+        + "  fine se\n"
+        + "  per (v1 assegna 0. v1 minore 3. v1 assegna v1 piu 1) fai\n"
+        + "    r assegna v1 moltiplica k diviso 2.\n"
+        + "    scrivi(r, \" \", r diviso 2).\n"
+        + "  fineper\n"
+        + "  scrivi(d, \" \", v2, \" \", r, \" \", k).\n"
+        + "fineprog\n");
+
+    // per loops that never run but whose bodies have something to hoist: i still takes its initial
+    // value, including when that value reads i itself.
+    static final Case ZERO_TRIP_PER = new Case("per sem iteracoes",
+        "programma zerovolte\n"
+        + "  var i: intero assegna 5.\n"
+        + "  var n: intero assegna 0.\n"
+        + "  var k: intero assegna 7.\n"
+        + "  var s: intero assegna 0.\n"
+        + "  per (i assegna 0. i minore 0. i assegna i piu 1) fai\n"
+        + "  fineper\n"
+        + "  scrivi(i).\n"
+        + "  i assegna 5.\n"
+        + "  per (i assegna 3. i minore n. i assegna i piu 1) fai\n"
+        + "    s assegna k moltiplica 2 piu s.\n"
+        + "  fineper\n"
+        + "  scrivi(i, \" \", s).\n"
+        + "  per (i assegna n moltiplica 2 piu 4. i maggiore 10. i assegna i meno 1) fai\n"
+        + "    s assegna k diviso n piu s.\n"
+        + "  fineper\n"
+        + "  scrivi(i, \" \", s).\n"
+        + "  per (i assegna i piu 1. i minore n. i assegna i piu 1) fai\n"
+        + "    s assegna k moltiplica 5 piu s.\n"
+        + "  fineper\n"
+        + "  scrivi(i, \" \", s).\n"
+        + "fineprog\n");
+
+    // A testo declared without an initializer inside a loop body starts every iteration empty again
+    // instead of keeping what the previous iteration left in it.
+    static final Case DECL_IN_LOOP = new Case("declaracao no laco",
+        "programma ridichiara\n"
+        + "  var i: intero assegna 0.\n"
+        + "  mentre (i minore 3) fai\n"
+        + "    var s: testo.\n"
+        + "    s assegna s piu \"a\".\n"
+        + "    scrivi(s).\n"
+        + "    i assegna i piu 1.\n"
+        + "  finementre\n"
+        + "fineprog\n");
+
+    // A division by zero whose result is never read still stops the program, at -O2 too.
+    static final Case UNREAD_DIVISION = new Case("divisao nao lida",
+        "programma divzero\n"
+        + "  var z: intero assegna 0.\n"
+        + "  var x: intero.\n"
+        + "  x assegna 5 diviso z.\n"
+        + "  x assegna 5 % z.\n"
+        + "  scrivi(\"ok\").\n"
+        + "fineprog\n");
+
+    static final Case[] CASES = {INT_INTO_DECIMAL, ZERO_TRIP_PER, DECL_IN_LOOP, UNREAD_DIVISION};
+
+    private final String compiler;
+    private final Path work;
+    private int failures;
+
+    private BackendCheck(String compiler, Path work) {
+        this.compiler = compiler;
+        this.work = work;
+    }
+
+    public static void main(String[] args) throws Exception {
+        BackendCheck check = new BackendCheck(args.length > 0 ? args[0] : "g++", Files.createTempDirectory("backend-check"));
+        for (Case c : CASES) {
+            check.check(c);
+        }
+        if (check.failures > 0) {
+            System.out.println(check.failures + " verificacao(oes) falharam.");
+            System.exit(1);
+        }
+        System.out.println("Todos os backends concordam nos " + CASES.length + " programas.");
+    }
+
+    private void check(Case c) throws Exception {
+        String expected = cpp(c, CompilerOptions.DEFAULT);
+        compare(c, "c++ -O1", expected, cpp(c, new CompilerOptions(1)));
+        for (int level = 0; level <= 2; level++) {
+            CompilerOptions options = new CompilerOptions(level);
+            VirtualMachine vm = new VirtualMachine(BatchCompiler.assemble(c.source, options, CompilerStats.forFile(c.name, false)));
+            compare(c, "vm -O" + level, expected, outcome(() -> ExecutionBenchmark.run(vm, "")));
+            JvmProgram jvm = BatchCompiler.load(c.source, options, CompilerStats.forFile(c.name, false));
+            compare(c, "jvm -O" + level, expected, outcome(() -> ExecutionBenchmark.run(jvm, "")));
+        }
+    }
+
+    private String cpp(Case c, CompilerOptions options) throws Exception {
+        String name = "p" + Integer.toHexString(c.name.hashCode()) + "-O" + options.optimize();
+        Path cpp = work.resolve(name + ".cpp");
+        Path binary = work.resolve(name);
+        Files.writeString(cpp, BatchCompiler.compile(c.source, options, CompilerStats.forFile(c.name, false)));
+        ExecutionBenchmark.exec(new ProcessBuilder(compiler, "-O0", "-w", "-o", binary.toString(), cpp.toString()), "");
+        return outcome(() -> ExecutionBenchmark.exec(new ProcessBuilder(binary.toString()), ""));
+    }
+
+    // The C++ binary exits with a signal and exec throws IllegalStateException; VirtualMachine and
+    // JvmProgram throw their "Erro de Execucao" as a RuntimeException.
+    private static String outcome(Callable<String> run) throws Exception {
+        try {
+            return run.call();
+        } catch (RuntimeException e) {
+            return TRAP;
+        }
+    }
+
+    private void compare(Case c, String engine, String expected, String actual) {
+        if (expected.equals(actual)) return;
+        failures++;
+        System.out.println("DIFERE " + c.name + " (" + engine + ")\n--- c++ -O0 ---\n" + expected + "--- " + engine + " ---\n" + actual);
+    }
+}
@@ -0,0 +1,35 @@
+package compiladorespj.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+public final class Corpus {
+    public static final String EXEMPLO1 = "exemplo1";
+
+    private Corpus() { }
+
+    public static String load(String name) {
+        switch (name) {
+            case EXEMPLO1: return exemplo1();
+            case "1k":     return synthetic(1_000);
+            case "100k":   return synthetic(100_000);
+            case "1m":     return synthetic(1_000_000);
+            default:       throw new IllegalArgumentException("Corpus desconhecido: " + name);
+        }
+    }
+
+    private static String exemplo1() {
+        try (InputStream in = Corpus.class.getResourceAsStream("/compiladorespj/exemplo1.cod")) {
+            if (in == null) throw new IllegalStateException("exemplo1.cod nao esta no classpath");
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String synthetic(int lines) {
+        return new ProgramGenerator(42).lines(lines).generate();
+    }
+}
@@ -0,0 +1,206 @@
+package compiladorespj.bench;
+
+import compiladorespj.BatchCompiler;
+import compiladorespj.CompilerOptions;
+import compiladorespj.CompilerStats;
+import compiladorespj.JvmProgram;
+import compiladorespj.VirtualMachine;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Time from source to finished run, VirtualMachine and JvmProgram against the C++ route: generate C++,
+// build it with the external compiler, run the binary, once as generated by default and once with
+// --fast-io. Each program is measured every way and the outputs compared, so a row also checks that
+// the engines agree.
+public final class ExecutionBenchmark {
+    private static final CompilerOptions VM_OPTIONS = new CompilerOptions(2);
+    private static final CompilerOptions FAST_IO = new CompilerOptions(0, false, true);
+    private static final CompilerOptions O1 = new CompilerOptions(1);
+    private static final CompilerOptions O1_FAST_IO = new CompilerOptions(1, false, true);
+
+    // Nested counted loops over intero and decimale, no input.
+    static final String LOOPS =
+        "programma cicli\n"
+        + "  var i: intero.\n"
+        + "  var j: intero.\n"
+        + "  var s: intero assegna 0.\n"
+        + "  var x: decimale assegna 0,0.\n"
+        + "  per (i assegna 0. i minore 20000. i assegna i piu 1) fai\n"
+        + "    per (j assegna 0. j minore 1000. j assegna j piu 1) fai\n"
+        + "      s assegna s piu i moltiplica j % 7.\n"
+        + "      x assegna x piu j diviso 3,0.\n"
+        + "    fineper\n"
+        + "  fineper\n"
+        + "  scrivi(s, \" \", x).\n"
+        + "fineprog\n";
+
+    // One short line per iteration: with endl, every line is a write system call.
+    static final String PRINTS =
+        "programma stampa\n"
+        + "  var i: intero.\n"
+        + "  per (i assegna 0. i minore 300000. i assegna i piu 1) fai\n"
+        + "    scrivi(\"riga \", i).\n"
+        + "    scrivi(i moltiplica 3, \" \", i % 7).\n"
+        + "  fineper\n"
+        + "fineprog\n";
+
+    // testo built from literals and variables every iteration, compared, and one string grown a
+    // character at a time.
+    static final String TEXTS =
+        "programma testi\n"
+        + "  var i: intero.\n"
+        + "  var a: testo assegna \"alfa\".\n"
+        + "  var b: testo assegna \"beta\".\n"
+        + "  var riga: testo.\n"
+        + "  var tutto: testo assegna \"\".\n"
+        + "  var conta: intero assegna 0.\n"
+        + "  per (i assegna 0. i minore 50000. i assegna i piu 1) fai\n"
+        + "    riga assegna a piu \" e \" piu b piu \" e \" piu a.\n"
+        + "    se (riga uguale \"alfa e beta e alfa\") allora\n"
+        + "      conta assegna conta piu 1.\n"
+        + "    fine se\n"
+        + "    tutto assegna tutto piu \"x\".\n"
+        + "  fineper\n"
+        + "  scrivi(conta, \" \", riga).\n"
+        + "  scrivi(tutto).\n"
+        + "fineprog\n";
+
+    // Bounds, arithmetic and a testo comparison that do not change from one iteration to the next,
+    // measured once more with the C++ generated at -O1, which computes them before the loops.
+    static final String INVARIANTS =
+        "programma invarianti\n"
+        + "  var i: intero.\n"
+        + "  var j: intero.\n"
+        + "  var n: intero assegna 600.\n"
+        + "  var passo: intero assegna 3.\n"
+        + "  var nome: testo assegna \"alfa\".\n"
+        + "  var s: intero assegna 0.\n"
+        + "  var conta: intero assegna 0.\n"
+        + "  per (i assegna 0. i minore n moltiplica 100. i assegna i piu 1) fai\n"
+        + "    s assegna (s piu i moltiplica (passo moltiplica 7 piu 1)) % 1000003.\n"
+        + "    se (nome piu \" e \" piu nome uguale \"alfa e alfa\") allora\n"
+        + "      conta assegna conta piu 1.\n"
+        + "    fine se\n"
+        + "    per (j assegna 0. j minore n diviso passo. j assegna j piu 1) fai\n"
+        + "      s assegna (s piu j moltiplica passo piu n) % 1000003.\n"
+        + "    fineper\n"
+        + "  fineper\n"
+        + "  scrivi(conta, \" \", s).\n"
+        + "fineprog\n";
+
+    private final String compiler;
+    private final int runs;
+    private final Path work;
+
+    private ExecutionBenchmark(String compiler, int runs, Path work) {
+        this.compiler = compiler;
+        this.runs = runs;
+        this.work = work;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String compiler = args.length > 0 ? args[0] : "g++";
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        String prime = args.length > 2 ? args[2] : "100000007";
+        ExecutionBenchmark bench = new ExecutionBenchmark(compiler, runs, Files.createTempDirectory("exec-bench"));
+        System.out.printf("%-12s %12s %12s %13s %13s %14s %14s %14s %8s%n", "programa", "vm total ms", "vm exec ms",
+                          "jvm total ms", "jvm exec ms", "c++ build ms", "c++ exec ms", "fast-io ms", "saida");
+        boolean same = bench.measure(Corpus.EXEMPLO1, Corpus.load(Corpus.EXEMPLO1), prime + "\n");
+        same &= bench.measure("cicli", LOOPS, "");
+        same &= bench.measure("stampa", PRINTS, "");
+        same &= bench.measure("testi", TEXTS, "");
+        same &= bench.measure("invarianti", INVARIANTS, "");
+        same &= bench.measure("invar-O1", INVARIANTS, "", O1, O1_FAST_IO);
+        if (!same) {
+            System.out.println("Os backends produziram saidas diferentes.");
+            System.exit(1);
+        }
+    }
+
+    private boolean measure(String name, String source, String input) throws IOException, InterruptedException {
+        return measure(name, source, input, CompilerOptions.DEFAULT, FAST_IO);
+    }
+
+    // A total covers the front end, lowering and one run; the exec columns are the best of runs.
+    private boolean measure(String name, String source, String input, CompilerOptions cppOptions, CompilerOptions fastOptions)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        VirtualMachine vm = new VirtualMachine(BatchCompiler.assemble(source, VM_OPTIONS, CompilerStats.forFile(name, false)));
+        String vmOutput = run(vm, input);
+        long vmTotal = System.nanoTime() - start;
+        long vmBest = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long t = System.nanoTime();
+            run(vm, input);
+            vmBest = Math.min(vmBest, System.nanoTime() - t);
+        }
+
+        start = System.nanoTime();
+        JvmProgram jvm = BatchCompiler.load(source, VM_OPTIONS, CompilerStats.forFile(name, false));
+        String jvmOutput = run(jvm, input);
+        long jvmTotal = System.nanoTime() - start;
+        long jvmBest = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long t = System.nanoTime();
+            run(jvm, input);
+            jvmBest = Math.min(jvmBest, System.nanoTime() - t);
+        }
+
+        Native cpp = buildAndRun(name, source, cppOptions, input);
+        Native fast = buildAndRun(name + "-fast", source, fastOptions, input);
+
+        boolean same = vmOutput.equals(cpp.output) && jvmOutput.equals(cpp.output) && fast.output.equals(cpp.output);
+        System.out.printf("%-12s %12.1f %12.1f %13.1f %13.1f %14.1f %14.1f %14.1f %8s%n", name, vmTotal / 1e6, vmBest / 1e6,
+                          jvmTotal / 1e6, jvmBest / 1e6, cpp.build / 1e6, cpp.best / 1e6, fast.best / 1e6,
+                          same ? "igual" : "DIFERE");
+        return same;
+    }
+
+    private record Native(String output, long build, long best) { }
+
+    private Native buildAndRun(String name, String source, CompilerOptions options, String input)
+            throws IOException, InterruptedException {
+        Path cpp = work.resolve(name + ".cpp");
+        Path binary = work.resolve(name);
+        Files.writeString(cpp, BatchCompiler.compile(source, options, CompilerStats.forFile(name, false)));
+        long start = System.nanoTime();
+        exec(new ProcessBuilder(compiler, "-O2", "-w", "-o", binary.toString(), cpp.toString()), "");
+        long build = System.nanoTime() - start;
+        String output = null;
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < Math.max(1, runs); i++) {
+            long t = System.nanoTime();
+            output = exec(new ProcessBuilder(binary.toString()), input);
+            best = Math.min(best, System.nanoTime() - t);
+        }
+        return new Native(output, build, best);
+    }
+
+    static String run(VirtualMachine vm, String input) throws IOException {
+        StringWriter out = new StringWriter();
+        vm.run(new StringReader(input), out);
+        return out.toString();
+    }
+
+    static String run(JvmProgram program, String input) throws IOException {
+        StringWriter out = new StringWriter();
+        program.run(new StringReader(input), out);
+        return out.toString();
+    }
+
+    static String exec(ProcessBuilder builder, String input) throws IOException, InterruptedException {
+        Process process = builder.redirectErrorStream(true).start();
+        process.getOutputStream().write(input.getBytes(StandardCharsets.UTF_8));
+        process.getOutputStream().close();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (!process.waitFor(10, TimeUnit.MINUTES) || process.exitValue() != 0) {
+            throw new IllegalStateException(String.join(" ", builder.command()) + " falhou:\n" + output);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,46 @@
+package compiladorespj.bench;
+
+import compiladorespj.AST;
+import compiladorespj.Lexer;
+import compiladorespj.Parser;
+import compiladorespj.SemanticAnalyzer;
+import compiladorespj.TokenBuffer;
+
+public final class Footprint {
+    private static volatile Object sink;
+
+    private Footprint() { }
+
+    public static void main(String[] args) {
+        String[] corpora = args.length > 0 ? args : new String[] {Corpus.EXEMPLO1, "1k", "100k", "1m"};
+        System.out.printf("%-10s %12s %16s %16s %16s%n", "corpus", "caracteres", "tokens B/char", "AST B/char", "total B/char");
+        for (String name : corpora) {
+            String source = Corpus.load(name);
+            long base = retained();
+            TokenBuffer tokens = new Lexer(source).tokenize();
+            long afterLex = retained();
+            AST.Program program = new Parser(tokens.cursor()).parseProgram();
+            SemanticAnalyzer analyzer = new SemanticAnalyzer();
+            analyzer.analyze(program);
+            long afterAst = retained();
+            double chars = source.length();
+            System.out.printf("%-10s %12d %16.2f %16.2f %16.2f%n", name, source.length(),
+                              (afterLex - base) / chars, (afterAst - afterLex) / chars, (afterAst - base) / chars);
+            keep(source, tokens, program, analyzer);
+        }
+    }
+
+    private static long retained() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+
+    private static void keep(Object... live) {
+        sink = live;
+    }
+}
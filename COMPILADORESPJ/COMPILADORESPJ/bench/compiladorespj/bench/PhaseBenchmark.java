@@ -0,0 +1,99 @@
+package compiladorespj.bench;
+
+import compiladorespj.AST;
+import compiladorespj.BatchCompiler;
+import compiladorespj.CodeGenerator;
+import compiladorespj.CompilerOptions;
+import compiladorespj.CompilerStats;
+import compiladorespj.Lexer;
+import compiladorespj.Parser;
+import compiladorespj.SemanticAnalyzer;
+import compiladorespj.TokenBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PhaseBenchmark {
+    private static final CompilerOptions OPTIMIZED = new CompilerOptions(1);
+    private static final CompilerOptions DATAFLOW = new CompilerOptions(2);
+
+    @Param({Corpus.EXEMPLO1, "1k", "100k", "1m"})
+    public String corpus;
+
+    private String source;
+    private TokenBuffer tokens;
+    private AST.Program analyzed;
+    private SemanticAnalyzer analyzer;
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        source = Corpus.load(corpus);
+        tokens = new Lexer(source).tokenize();
+        analyzed = new Parser(tokens.cursor()).parseProgram();
+        analyzer = new SemanticAnalyzer();
+        analyzer.analyze(analyzed);
+    }
+
+    @Benchmark
+    public TokenBuffer lex() {
+        return new Lexer(source).tokenize();
+    }
+
+    @Benchmark
+    public AST.Program parse() {
+        return new Parser(tokens.cursor()).parseProgram();
+    }
+
+    @Benchmark
+    public SemanticAnalyzer semantic(FreshAst fresh) {
+        SemanticAnalyzer a = new SemanticAnalyzer();
+        a.analyze(fresh.program);
+        return a;
+    }
+
+    @Benchmark
+    public String codegen() {
+        return new CodeGenerator(analyzer.symbols()).generate(analyzed);
+    }
+
+    @Benchmark
+    public String pipeline() {
+        return BatchCompiler.compile(source, CompilerOptions.DEFAULT, CompilerStats.forFile(corpus, false));
+    }
+
+    @Benchmark
+    public String pipelineOptimized() {
+        return BatchCompiler.compile(source, OPTIMIZED, CompilerStats.forFile(corpus, false));
+    }
+
+    @Benchmark
+    public String pipelineDataflow() {
+        return BatchCompiler.compile(source, DATAFLOW, CompilerStats.forFile(corpus, false));
+    }
+
+    @State(Scope.Thread)
+    public static class FreshAst {
+        AST.Program program;
+
+        @Setup(Level.Invocation)
+        public void parse(PhaseBenchmark bench) {
+            program = new Parser(bench.tokens.cursor()).parseProgram();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package compiladorespj.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class ProgramGenerator {
+
+    public enum Defect { NONE, LEXICAL, SYNTAX, SEMANTIC }
+
+    private static final String[] ARITHMETIC = {"piu", "meno", "moltiplica", "diviso"};
+    private static final String[] RELATIONAL = {"uguale", "diverso", "minore", "maggiore", "minoreuguale", "maggioreuguale"};
+    private static final String[] TYPES = {"intero", "decimale", "testo", "booleano"};
+    private static final int MAX_INDENT = 8;
+
+    private final long seed;
+    private int lines = 1_000;
+    private int depth = 3;
+    private int expressionLength = 4;
+    private int declarations = 16;
+    private int stringSize = 8;
+    private Defect defect = Defect.NONE;
+
+    private Random random;
+    private StringBuilder sb;
+    private int lineCount;
+    private int locals;
+    private boolean spine;
+    private final List<List<String>> byType = new ArrayList<>();
+
+    public ProgramGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public ProgramGenerator lines(int lines) { this.lines = lines; return this; }
+    public ProgramGenerator depth(int depth) { this.depth = depth; return this; }
+    public ProgramGenerator expressionLength(int length) { this.expressionLength = Math.max(1, length); return this; }
+    public ProgramGenerator declarations(int declarations) { this.declarations = Math.max(TYPES.length, declarations); return this; }
+    public ProgramGenerator stringSize(int size) { this.stringSize = size; return this; }
+    public ProgramGenerator defect(Defect defect) { this.defect = defect; return this; }
+
+    // Blocks nested depth levels deep, cycling through se, mentre and per.
+    public static String nestedBlocks(int depth) {
+        StringBuilder sb = new StringBuilder(depth * 64);
+        sb.append("programma profondo\nvar i: intero assegna 0.\n");
+        for (int d = 0; d < depth; d++) {
+            switch (d % 3) {
+                case 0: sb.append("se (i minore ").append(d).append(") allora\n"); break;
+                case 1: sb.append("mentre (i minore ").append(d).append(") fai\n"); break;
+                default: sb.append("per (i assegna 0. i minore ").append(d).append(". i assegna i piu 1) fai\n"); break;
+            }
+        }
+        sb.append("i assegna i piu 1.\n");
+        for (int d = depth - 1; d >= 0; d--) {
+            sb.append(d % 3 == 0 ? "fine se\n" : d % 3 == 1 ? "fine mentre\n" : "fineper\n");
+        }
+        return sb.append("fineprog\n").toString();
+    }
+
+    // One assignment whose expression nests depth parentheses, each holding a binary operation, so
+    // the AST is as deep as the parentheses; leftDeep instead chains depth operators without any.
+    public static String nestedExpression(int depth, boolean leftDeep) {
+        StringBuilder sb = new StringBuilder(depth * 12);
+        sb.append("programma profondo\nvar i: intero assegna 0.\ni assegna ");
+        if (leftDeep) {
+            sb.append('i');
+            for (int d = 0; d < depth; d++) {
+                sb.append(d % 2 == 0 ? " piu " : " meno ").append(d % 10);
+            }
+        } else {
+            for (int d = 0; d < depth; d++) {
+                sb.append('(').append(d % 10).append(d % 2 == 0 ? " piu " : " meno ");
+            }
+            sb.append('i');
+            for (int d = 0; d < depth; d++) {
+                sb.append(')');
+            }
+        }
+        return sb.append(".\nfineprog\n").toString();
+    }
+
+    public String generate() {
+        random = new Random(seed);
+        sb = new StringBuilder(Math.max(64, lines) * 40);
+        lineCount = 0;
+        locals = 0;
+        spine = depth > 0;
+        byType.clear();
+        for (int t = 0; t < TYPES.length; t++) {
+            byType.add(new ArrayList<>());
+        }
+
+        line(0, "programma generato");
+        for (int i = 0; i < declarations; i++) {
+            int t = i % TYPES.length;
+            String name = "v" + i;
+            byType.get(t).add(name);
+            line(1, "var " + name + ": " + TYPES[t] + " assegna " + literal(t) + ".");
+        }
+        int defectLine = defect == Defect.NONE ? -1 : lineCount + random.nextInt(Math.max(1, lines - lineCount));
+        while (lineCount < lines) {
+            int before = sb.length();
+            int first = lineCount;
+            statement(1, depth);
+            if (first <= defectLine && defectLine < lineCount) {
+                inject(before);
+                defectLine = -1;
+            }
+        }
+        if (defectLine >= 0) {
+            inject(sb.length());
+        }
+        line(0, "fineprog");
+        return sb.toString();
+    }
+
+    private void statement(int indent, int nesting) {
+        int choice;
+        if (spine && nesting > 0) {
+            choice = 5 + random.nextInt(4);
+        } else {
+            spine = false;
+            choice = random.nextInt(nesting > 0 && lineCount < lines ? 9 : 5);
+        }
+        switch (choice) {
+            case 0: {
+                int t = random.nextInt(3);
+                line(indent, pick(t) + " assegna " + expression(t, expressionLength) + ".");
+                break;
+            }
+            case 1:
+                line(indent, "scrivi(" + expression(2, 1) + ", " + expression(0, expressionLength) + ").");
+                break;
+            case 2:
+                line(indent, "leggi(" + pick(random.nextInt(3)) + ").");
+                break;
+            case 3:
+                line(indent, pick(3) + " assegna " + literal(3) + ".");
+                break;
+            case 4: {
+                int t = random.nextInt(TYPES.length);
+                String name = "w" + locals++;
+                line(indent, "var " + name + ": " + TYPES[t] + " assegna " + literal(t) + ".");
+                break;
+            }
+            case 5:
+            case 6:
+                line(indent, "se (" + condition() + ") allora");
+                block(indent + 1, nesting - 1);
+                if (random.nextBoolean()) {
+                    line(indent, "altrimenti");
+                    block(indent + 1, nesting - 1);
+                }
+                line(indent, "fine se");
+                break;
+            case 7:
+                line(indent, "mentre (" + condition() + ") fai");
+                block(indent + 1, nesting - 1);
+                line(indent, "fine mentre");
+                break;
+            default: {
+                String counter = pick(0);
+                line(indent, "per (" + counter + " assegna 0. " + counter + " minore " + random.nextInt(100)
+                             + ". " + counter + " assegna " + counter + " piu 1) fai");
+                block(indent + 1, nesting - 1);
+                line(indent, "fineper");
+                break;
+            }
+        }
+    }
+
+    private void block(int indent, int nesting) {
+        int n = 1 + random.nextInt(3);
+        for (int i = 0; i < n; i++) {
+            statement(indent, nesting);
+        }
+    }
+
+    private String condition() {
+        if (random.nextInt(4) == 0) return pick(3);
+        return expression(0, 1 + random.nextInt(expressionLength)) + " " + RELATIONAL[random.nextInt(RELATIONAL.length)]
+               + " " + expression(random.nextInt(2), 1);
+    }
+
+    private String expression(int type, int length) {
+        StringBuilder e = new StringBuilder();
+        e.append(operand(type));
+        for (int i = 1; i < length; i++) {
+            String op = type == 2 ? "piu" : ARITHMETIC[random.nextInt(ARITHMETIC.length)];
+            if (type == 0 && random.nextInt(5) == 0) op = "%";
+            e.append(' ').append(op).append(' ').append(operand(type));
+        }
+        return e.toString();
+    }
+
+    private String operand(int type) {
+        if (type == 1 && random.nextInt(3) == 0) return operand(0);
+        return random.nextBoolean() ? pick(type) : literal(type);
+    }
+
+    private String literal(int type) {
+        switch (type) {
+            case 0:
+                return Integer.toString(random.nextInt(1000));
+            case 1:
+                return random.nextInt(100) + "," + random.nextInt(100);
+            case 2: {
+                StringBuilder s = new StringBuilder(stringSize + 2).append('"');
+                for (int i = 0; i < stringSize; i++) {
+                    s.append((char) ('a' + random.nextInt(26)));
+                }
+                return s.append('"').toString();
+            }
+            default:
+                return random.nextBoolean() ? "vero" : "falso";
+        }
+    }
+
+    private String pick(int type) {
+        List<String> names = byType.get(type);
+        return names.get(random.nextInt(names.size()));
+    }
+
+    private void inject(int at) {
+        int end = sb.indexOf("\n", at);
+        if (end < 0) end = sb.length();
+        switch (defect) {
+            case LEXICAL:
+                sb.insert(end, " @");
+                break;
+            case SYNTAX: {
+                int dot = sb.lastIndexOf(".", end);
+                if (dot > at) {
+                    sb.deleteCharAt(dot);
+                } else {
+                    sb.insert(end, " assegna");
+                }
+                break;
+            }
+            case SEMANTIC:
+                sb.insert(at, "  " + pick(0) + " assegna " + literal(2) + ".\n");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void line(int indent, String text) {
+        for (int i = Math.min(indent, MAX_INDENT); i > 0; i--) {
+            sb.append("  ");
+        }
+        sb.append(text).append('\n');
+        lineCount++;
+    }
+}
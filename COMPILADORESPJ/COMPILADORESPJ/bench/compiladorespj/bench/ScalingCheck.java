@@ -0,0 +1,212 @@
+package compiladorespj.bench;
+
+import compiladorespj.AST;
+import compiladorespj.CodeGenerator;
+import compiladorespj.Lexer;
+import compiladorespj.Parser;
+import compiladorespj.SemanticAnalyzer;
+import compiladorespj.TokenBuffer;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+public final class ScalingCheck {
+    private static final String[] PHASES = {"lexica", "sintatica", "semantica", "geracao"};
+    // A sample repeats the pipeline until it has run this long, and a phase only counts once it takes
+    // MIN_SIGNIFICANT_NANOS per run at the largest size: below that JIT and GC noise, not the
+    // algorithm, decide the exponent.
+    private static final long MIN_SAMPLE_NANOS = 75_000_000;
+    private static final long MIN_SIGNIFICANT_NANOS = 5_000_000;
+    private static final int STRESS_DEPTH = 100_000;
+
+    private final int doublings;
+    private final int repetitions;
+    private final double tolerance;
+    private int failures;
+
+    private ScalingCheck(int doublings, int repetitions, double tolerance) {
+        this.doublings = doublings;
+        this.repetitions = repetitions;
+        this.tolerance = tolerance;
+    }
+
+    public static void main(String[] args) {
+        int doublings = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        double tolerance = args.length > 1 ? Double.parseDouble(args[1]) : 0.3;
+        ScalingCheck check = new ScalingCheck(doublings, 9, tolerance);
+        check.runAll();
+        if (check.failures > 0) {
+            System.out.println(check.failures + " verificacao(oes) falharam.");
+            System.exit(1);
+        }
+        System.out.println("Todas as fases escalam linearmente (tolerancia " + tolerance + ") e suportam aninhamento profundo.");
+    }
+
+    private void runAll() {
+        dimension("linhas", 20_000, n -> new ProgramGenerator(1).lines(n).generate());
+        dimension("tamanho da expressao", 500, n -> new ProgramGenerator(2).lines(200).expressionLength(n).generate());
+        dimension("profundidade", 250, n -> new ProgramGenerator(3).lines(4 * n).depth(n).generate());
+        dimension("declaracoes", 5_000, n -> new ProgramGenerator(4).lines(n + 100).declarations(n).generate());
+        dimension("tamanho do texto", 10_000, n -> new ProgramGenerator(5).lines(500).stringSize(n).generate());
+        checkDefects();
+        checkDeepNesting();
+    }
+
+    // A dimension that looks super-linear is measured once more before it counts as a failure, so a
+    // single disturbed run (a full GC, a deoptimization) does not fail the suite.
+    private void dimension(String name, int base, IntFunction<String> generator) {
+        int superLinear = measureDimension(name, base, generator);
+        if (superLinear > 0) {
+            System.out.println("(repetindo " + name + ")");
+            superLinear = measureDimension(name, base, generator);
+        }
+        failures += superLinear;
+    }
+
+    private int measureDimension(String name, int base, IntFunction<String> generator) {
+        int superLinearPhases = 0;
+        long[][] times = new long[doublings + 1][PHASES.length];
+        long[][] work = new long[doublings + 1][PHASES.length];
+        int[] sizes = new int[doublings + 1];
+        for (int k = 0; k <= doublings; k++) {
+            sizes[k] = base << k;
+            measure(generator.apply(sizes[k]), times[k], work[k]);
+        }
+        System.out.println("--- " + name + " ---");
+        System.out.printf("%-12s", "n");
+        for (String phase : PHASES) System.out.printf(" %12s", phase + " ms");
+        System.out.println();
+        for (int k = 0; k <= doublings; k++) {
+            System.out.printf("%-12d", sizes[k]);
+            for (long t : times[k]) System.out.printf(" %12.2f", t / 1e6);
+            System.out.println();
+        }
+        System.out.printf("%-12s", "expoente");
+        for (int p = 0; p < PHASES.length; p++) {
+            if (work[doublings][p] < 2 * work[0][p]) {
+                System.out.printf(" %12s", "-");
+                continue;
+            }
+            double slope = slope(work, times, p);
+            boolean significant = times[doublings][p] >= MIN_SIGNIFICANT_NANOS;
+            boolean superLinear = significant && slope > 1 + tolerance;
+            if (superLinear) superLinearPhases++;
+            System.out.printf(" %11.2f%s", slope, superLinear ? "!" : significant ? " " : "~");
+        }
+        System.out.println();
+        return superLinearPhases;
+    }
+
+    // Each phase is regressed against the size of what it reads or writes (characters in, tokens,
+    // characters out), so a generator dimension that inflates the text itself is not mistaken
+    // for a compiler that scales badly. A phase's time is the median over the samples of its mean
+    // time per run within a sample.
+    private void measure(String source, long[] median, long[] work) {
+        long[] total = new long[PHASES.length];
+        long start = System.nanoTime();
+        for (int r = 0; r < 2; r++) {
+            run(source, total, work);
+        }
+        long perRun = Math.max(1, (System.nanoTime() - start) / 2);
+        int runs = (int) Math.max(1, (MIN_SAMPLE_NANOS + perRun - 1) / perRun);
+        long[][] samples = new long[PHASES.length][repetitions];
+        for (int r = 0; r < repetitions; r++) {
+            Arrays.fill(total, 0);
+            for (int i = 0; i < runs; i++) {
+                run(source, total, work);
+            }
+            for (int p = 0; p < PHASES.length; p++) {
+                samples[p][r] = total[p] / runs;
+            }
+        }
+        for (int p = 0; p < PHASES.length; p++) {
+            Arrays.sort(samples[p]);
+            median[p] = samples[p][repetitions / 2];
+        }
+    }
+
+    private static void run(String source, long[] total, long[] work) {
+        long t0 = System.nanoTime();
+        TokenBuffer tokens = new Lexer(source).tokenize();
+        long t1 = System.nanoTime();
+        AST.Program program = new Parser(tokens.cursor()).parseProgram();
+        long t2 = System.nanoTime();
+        SemanticAnalyzer analyzer = new SemanticAnalyzer();
+        analyzer.analyze(program);
+        long t3 = System.nanoTime();
+        String cpp = new CodeGenerator(analyzer.symbols()).generate(program);
+        long t4 = System.nanoTime();
+        work[0] = source.length();
+        work[1] = tokens.size();
+        work[2] = tokens.size();
+        work[3] = cpp.length();
+        total[0] += t1 - t0;
+        total[1] += t2 - t1;
+        total[2] += t3 - t2;
+        total[3] += t4 - t3;
+    }
+
+    private static double slope(long[][] work, long[][] times, int phase) {
+        int n = work.length;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int k = 0; k < n; k++) {
+            double x = Math.log(work[k][phase]);
+            double y = Math.log(Math.max(1, times[k][phase]));
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        return (n * sxy - sx * sy) / (n * sxx - sx * sx);
+    }
+
+    // Runs on the default thread stack on purpose: no phase may recurse per nesting level.
+    private void checkDeepNesting() {
+        System.out.println("--- aninhamento de " + STRESS_DEPTH + " niveis ---");
+        deep("blocos", ProgramGenerator.nestedBlocks(STRESS_DEPTH));
+        deep("parenteses", ProgramGenerator.nestedExpression(STRESS_DEPTH, false));
+        deep("cadeia de operadores", ProgramGenerator.nestedExpression(STRESS_DEPTH, true));
+    }
+
+    private void deep(String name, String source) {
+        long start = System.nanoTime();
+        try {
+            TokenBuffer tokens = new Lexer(source).tokenize();
+            AST.Program program = new Parser(tokens.cursor()).parseProgram();
+            SemanticAnalyzer analyzer = new SemanticAnalyzer();
+            analyzer.analyze(program);
+            long chars = new CodeGenerator(analyzer.symbols()).generate(program, Writer.nullWriter());
+            System.out.printf("%-22s ok em %.1f ms (%d caracteres de C++)%n", name, (System.nanoTime() - start) / 1e6, chars);
+        } catch (StackOverflowError e) {
+            failures++;
+            System.out.printf("%-22s ! estouro de pilha%n", name);
+        } catch (IOException | RuntimeException e) {
+            failures++;
+            System.out.printf("%-22s ! %s%n", name, e.getMessage());
+        }
+    }
+
+    private void checkDefects() {
+        System.out.println("--- programas invalidos ---");
+        for (ProgramGenerator.Defect defect : ProgramGenerator.Defect.values()) {
+            if (defect == ProgramGenerator.Defect.NONE) continue;
+            String source = new ProgramGenerator(6).lines(5_000).defect(defect).generate();
+            String outcome;
+            try {
+                TokenBuffer tokens = new Lexer(source).tokenize();
+                AST.Program program = new Parser(tokens.cursor()).parseProgram();
+                new SemanticAnalyzer().analyze(program);
+                outcome = null;
+            } catch (RuntimeException e) {
+                outcome = e.getMessage();
+            }
+            if (outcome == null) {
+                failures++;
+                System.out.println(defect + ": ! programa aceito apesar do defeito");
+            } else {
+                System.out.println(defect + ": " + outcome);
+            }
+        }
+    }
+}
@@ -5,11 +5,15 @@
 
 using namespace std;
 
+static const string _s0 = "Digite um numero:";
+static const string _s1 = " è primo!";
+static const string _s2 = " não é primo!";
+
 int main() {
     int numero;
     bool eh_primo = true;
     int i = 2;
-    cout << "Digite um numero:" << endl;
+    cout << _s0 << endl;
     cin >> numero;
     if (numero <= 1) {
         eh_primo = false;
@@ -23,9 +27,9 @@ int main() {
         }
     }
     if (eh_primo) {
-        cout << numero << " è primo!" << endl;
+        cout << numero << _s1 << endl;
     } else {
-        cout << numero << " não é primo!" << endl;
+        cout << numero << _s2 << endl;
     }
     return 0;
 }
@@ -0,0 +1,23 @@
+#!/bin/sh
+# Launcher for COMPILADORESPJ.jar that maps the AppCDS archive built by
+# "ant jar" (see -post-jar in build.xml). Extra JVM flags go in JAVA_OPTS.
+DIR=$(cd "$(dirname "$0")" && pwd)
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+ARCHIVE="$DIR/COMPILADORESPJ.jsa"
+
+CDS=""
+if [ -f "$ARCHIVE" ]; then
+    CDS="-XX:SharedArchiveFile=$ARCHIVE -Xshare:auto"
+fi
+
+# One-shot compilations end long before C2 pays off; the batch mode, the
+# compile daemon and the program runners (--run on the bytecode VM, --jvm as a
+# hidden class) keep the full tiered pipeline so C2 optimizes the hot loops.
+TIERED="-XX:TieredStopAtLevel=1"
+for arg in "$@"; do
+    case "$arg" in
+        --batch|--server|--run|--jvm) TIERED="" ;;
+    esac
+done
+
+exec "$JAVA" $CDS $TIERED -XX:+UseSerialGC $JAVA_OPTS -jar "$DIR/COMPILADORESPJ.jar" "$@"
@@ -0,0 +1,43 @@
+#!/bin/bash
+# Time-to-first-output and total wall time of one single-file compilation,
+# comparing a plain "java -jar" run against the CDS launcher.
+#   scripts/ttfo.sh [runs] [input.cod] [dist_dir]
+RUNS=${1:-20}
+INPUT=${2:-src/compiladorespj/exemplo1.cod}
+DIST=${3:-dist}
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+OUT=$(mktemp -d)
+trap 'rm -rf "$OUT"' EXIT
+
+now() { date +%s%N; }
+
+measure() {
+    local label=$1; shift
+    local first=() total=()
+    for ((i = 0; i < RUNS; i++)); do
+        local start end_first end_total
+        start=$(now)
+        "$@" "$INPUT" "$OUT/out.cpp" 2>&1 | {
+            IFS= read -r _
+            echo "$(now)" > "$OUT/first"
+            cat > /dev/null
+        }
+        end_total=$(now)
+        end_first=$(cat "$OUT/first")
+        first+=($(( (end_first - start) / 1000000 )))
+        total+=($(( (end_total - start) / 1000000 )))
+    done
+    printf '%-28s primeira saida: mediana %4d ms   total: mediana %4d ms   (%d execucoes)\n' \
+        "$label" "$(median "${first[@]}")" "$(median "${total[@]}")" "$RUNS"
+}
+
+median() {
+    printf '%s\n' "$@" | sort -n | awk '{ v[NR] = $1 } END { print v[int((NR + 1) / 2)] }'
+}
+
+measure "java -jar (sem CDS)" "$JAVA" -Xshare:auto -jar "$DIST/COMPILADORESPJ.jar"
+if [ -f "$DIST/COMPILADORESPJ.jsa" ]; then
+    measure "compiladorespj.sh (AppCDS)" sh "$DIST/compiladorespj.sh"
+else
+    echo "$DIST/COMPILADORESPJ.jsa nao encontrado; rode 'ant jar' para gerar o arquivo CDS."
+fi
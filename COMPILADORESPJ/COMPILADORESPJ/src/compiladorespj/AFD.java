@@ -1,7 +0,0 @@
-package compiladorespj;
-
-import java.text.CharacterIterator;
-
-public abstract class AFD{
-    public abstract Token evaluate(CharacterIterator code);
-}
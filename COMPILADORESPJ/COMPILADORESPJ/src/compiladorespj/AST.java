@@ -4,7 +4,7 @@ import java.util.List;
 
 public class AST {
 
-    public static class Program {
+    public static final class Program {
         public final String name;
         public final Block block;
 
@@ -15,7 +15,7 @@ public class AST {
         @Override public String toString() { return "Program(" + name + ")"; }
     }
 
-    public static class Block {
+    public static final class Block {
         public final List<Statement> statements;
 
         public Block(List<Statement> statements) {
@@ -24,13 +24,29 @@ public class AST {
         @Override public String toString() { return "Block(num_stmts=" + (statements != null ? statements.size() : 0) + ")"; }
     }
 
-    public interface Statement { }
+    public sealed interface Statement
+        permits VarDecl, Assignment, Read, Write, IfStmt, WhileStmt, ForStmt, ReturnStmt, BreakStmt {
+        <R> R accept(StatementVisitor<R> v);
+    }
+
+    public interface StatementVisitor<R> {
+        R visitVarDecl(VarDecl d);
+        R visitAssignment(Assignment a);
+        R visitRead(Read r);
+        R visitWrite(Write w);
+        R visitIf(IfStmt i);
+        R visitWhile(WhileStmt w);
+        R visitFor(ForStmt f);
+        R visitReturn(ReturnStmt r);
+        R visitBreak(BreakStmt b);
+    }
 
-    public static class VarDecl implements Statement {
+    public static final class VarDecl implements Statement {
         public final boolean isConst;
         public final String name;
         public final String type;
         public final Expression init;
+        public int slot = -1;
 
         public VarDecl(boolean isConst, String name, String type, Expression init) {
             this.isConst = isConst;
@@ -38,35 +54,41 @@ public class AST {
             this.type = type;
             this.init = init;
         }
+        @Override public <R> R accept(StatementVisitor<R> v) { return v.visitVarDecl(this); }
         @Override public String toString() { return (isConst?"ConstDecl(":"VarDecl(") + name + ":" + type + (init != null ? "=" + init : "") + ")"; }
     }
 
-    public static class Assignment implements Statement {
+    public static final class Assignment implements Statement {
         public final String name;
         public final Expression expr;
+        public int slot = -1;
 
         public Assignment(String name, Expression expr) {
             this.name = name;
             this.expr = expr;
         }
+        @Override public <R> R accept(StatementVisitor<R> v) { return v.visitAssignment(this); }
         @Override public String toString() { return "Assignment(" + name + "=" + expr + ")"; }
     }
 
-    public static class Read implements Statement {
+    public static final class Read implements Statement {
         public final String name;
+        public int slot = -1;
 
         public Read(String name) { this.name = name; }
+        @Override public <R> R accept(StatementVisitor<R> v) { return v.visitRead(this); }
         @Override public String toString() { return "Read(" + name + ")"; }
     }
 
-    public static class Write implements Statement {
+    public static final class Write implements Statement {
         public final List<Expression> expressions;
 
         public Write(List<Expression> expressions) { this.expressions = expressions; }
+        @Override public <R> R accept(StatementVisitor<R> v) { return v.visitWrite(this); }
         @Override public String toString() { return "Write(" + expressions + ")"; }
     }
 
-    public static class IfStmt implements Statement {
+    public static final class IfStmt implements Statement {
         public final Condition cond;
         public final Block thenBlock;
         public final Block elseBlock;
@@ -76,10 +98,11 @@ public class AST {
             this.thenBlock = thenBlock;
             this.elseBlock = elseBlock;
         }
+        @Override public <R> R accept(StatementVisitor<R> v) { return v.visitIf(this); }
         @Override public String toString() { return "IfStmt(Cond:" + cond + ", HasElse:"+(elseBlock != null)+")"; }
     }
 
-    public static class WhileStmt implements Statement {
+    public static final class WhileStmt implements Statement {
         public final Condition cond;
         public final Block block;
 
@@ -87,14 +110,17 @@ public class AST {
             this.cond = cond;
             this.block = block;
         }
+        @Override public <R> R accept(StatementVisitor<R> v) { return v.visitWhile(this); }
         @Override public String toString() { return "WhileStmt(" + cond + ")"; }
     }
 
-    public static class ForStmt implements Statement {
+    public static final class ForStmt implements Statement {
         public final Assignment init;
         public final Condition cond;
         public final Assignment update;
         public final Block block;
+        // Set by LoopOptimizer: how much a counted loop adds to its variable each time, 0 if not counted.
+        public int step;
 
         public ForStmt(Assignment init, Condition cond, Assignment update, Block block) {
             this.init = init;
@@ -102,41 +128,57 @@ public class AST {
             this.update = update;
             this.block = block;
         }
+        @Override public <R> R accept(StatementVisitor<R> v) { return v.visitFor(this); }
         @Override public String toString() { return "ForStmt(" + init + ";" + cond + ";" + update + ")"; }
     }
 
-    public static class ReturnStmt implements Statement {
+    public static final class ReturnStmt implements Statement {
         public final Expression expr;
 
         public ReturnStmt(Expression expr) { this.expr = expr; }
+        @Override public <R> R accept(StatementVisitor<R> v) { return v.visitReturn(this); }
         @Override public String toString() { return "ReturnStmt(" + expr + ")"; }
     }
     
-    public static class BreakStmt implements Statement {
+    public static final class BreakStmt implements Statement {
          public BreakStmt() {}
+         @Override public <R> R accept(StatementVisitor<R> v) { return v.visitBreak(this); }
          @Override public String toString() { return "BreakStmt"; }
     }
 
-    public interface Expression { }
+    public static abstract sealed class Expression permits Literal, Variable, BinaryExpr {
+        public Type type;
+
+        public abstract <R> R accept(ExpressionVisitor<R> v);
+    }
+
+    public interface ExpressionVisitor<R> {
+        R visitLiteral(Literal l);
+        R visitVariable(Variable v);
+        R visitBinary(BinaryExpr b);
+    }
 
-    public static class Literal implements Expression {
+    public static final class Literal extends Expression {
         public final Object value;
 
         public Literal(Object value) { this.value = value; }
+        @Override public <R> R accept(ExpressionVisitor<R> v) { return v.visitLiteral(this); }
         @Override public String toString() {
             if (value instanceof String) return "Literal(\"" + value + "\")";
             return "Literal(" + value + ")";
         }
     }
 
-    public static class Variable implements Expression {
+    public static final class Variable extends Expression {
         public final String name;
+        public int slot = -1;
 
         public Variable(String name) { this.name = name; }
+        @Override public <R> R accept(ExpressionVisitor<R> v) { return v.visitVariable(this); }
         @Override public String toString() { return "Variable(" + name + ")"; }
     }
 
-    public static class BinaryExpr implements Expression {
+    public static final class BinaryExpr extends Expression {
         public final Expression left;
         public final String op;
         public final Expression right;
@@ -144,14 +186,16 @@ public class AST {
         public BinaryExpr(Expression left, String op, Expression right) {
             this.left = left; this.op = op; this.right = right;
         }
+        @Override public <R> R accept(ExpressionVisitor<R> v) { return v.visitBinary(this); }
         @Override public String toString() { return "BinaryExpr(" + left + " " + op + " " + right + ")"; }
     }
 
-    public static class Condition {
+    public static final class Condition {
         public final Expression left;
         public final String op;
         public final Expression right;
         public final Expression singleBooleanExpression;
+        public Type type;
 
         public Condition(Expression left, String op, Expression right) {
             this.left = left;
@@ -0,0 +1,248 @@
+package compiladorespj;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+public final class BatchCompiler {
+    private static final String SOURCE_SUFFIX = ".cod";
+    private static final String TARGET_SUFFIX = ".cpp";
+
+    private final int jobs;
+    private final Path outputDir;
+    private final CompileCache cache;
+    private final CompilerOptions options;
+    private final CompilerStats stats;
+
+    public BatchCompiler(int jobs, Path outputDir, CompileCache cache, CompilerOptions options, CompilerStats stats) {
+        this.jobs = jobs;
+        this.outputDir = outputDir;
+        this.cache = cache;
+        this.options = options;
+        this.stats = stats;
+    }
+
+    public static String compile(String sourceCode, CompilerOptions options, CompilerStats stats) {
+        StringWriter out = new StringWriter(sourceCode.length() * 2);
+        try {
+            compile(sourceCode, options, out, stats);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    public static long compile(String sourceCode, CompilerOptions options, Writer out, CompilerStats stats) throws IOException {
+        Checked checked = check(sourceCode, options, stats);
+        Ir ir = options.lowersToIr() ? lower(checked.program(), checked.symbols(), options, stats) : null;
+        return generate(checked, ir, options, out, stats);
+    }
+
+    // Only writing to out can fail from here on: everything that rejects a program has already run.
+    private static long generate(Checked checked, Ir ir, CompilerOptions options, Writer out, CompilerStats stats)
+            throws IOException {
+        stats.begin(CompilerStats.Phase.CODEGEN);
+        long chars = ir == null
+            ? new CodeGenerator(checked.symbols(), options.fastIo()).generate(checked.program(), out)
+            : new IrCodeGenerator(ir, options.fastIo()).generate(out);
+        stats.end(CompilerStats.Phase.CODEGEN, chars);
+        return chars;
+    }
+
+    // The same front end as compile, ending in Bytecode for VirtualMachine instead of C++.
+    public static Bytecode assemble(String sourceCode, CompilerOptions options, CompilerStats stats) {
+        Checked checked = check(sourceCode, options, stats);
+        Ir ir = lower(checked.program(), checked.symbols(), options, stats);
+        stats.begin(CompilerStats.Phase.BYTECODE);
+        Bytecode bytecode = Bytecode.assemble(ir);
+        stats.end(CompilerStats.Phase.BYTECODE, bytecode.size());
+        return bytecode;
+    }
+
+    // The same front end again, ending in a hidden class that runs on the JVM itself.
+    public static JvmProgram load(String sourceCode, CompilerOptions options, CompilerStats stats) {
+        Checked checked = check(sourceCode, options, stats);
+        Ir ir = lower(checked.program(), checked.symbols(), options, stats);
+        stats.begin(CompilerStats.Phase.CLASSFILE);
+        JvmProgram program = JvmProgram.load(ir);
+        stats.end(CompilerStats.Phase.CLASSFILE, program.classBytes());
+        return program;
+    }
+
+    private record Checked(AST.Program program, SymbolTable symbols) { }
+
+    private static Checked check(String sourceCode, CompilerOptions options, CompilerStats stats) {
+        stats.begin(CompilerStats.Phase.LEX);
+        TokenBuffer tokens = new Lexer(sourceCode).tokenize();
+        stats.end(CompilerStats.Phase.LEX, tokens.size());
+        stats.begin(CompilerStats.Phase.PARSE);
+        Parser parser = new Parser(tokens.cursor());
+        AST.Program programAst = parser.parseProgram();
+        stats.end(CompilerStats.Phase.PARSE, parser.nodeCount());
+        stats.begin(CompilerStats.Phase.SEMANTIC);
+        SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer();
+        semanticAnalyzer.analyze(programAst);
+        stats.end(CompilerStats.Phase.SEMANTIC, semanticAnalyzer.symbols().size());
+        optimize(programAst, semanticAnalyzer.symbols(), options, stats);
+        return new Checked(programAst, semanticAnalyzer.symbols());
+    }
+
+    public boolean run(List<Path> inputs, PrintStream out) throws IOException, InterruptedException {
+        List<Unit> units = collect(inputs);
+        Files.createDirectories(outputDir);
+
+        long start = System.nanoTime();
+        List<Future<Result>> futures = new ArrayList<>(units.size());
+        ExecutorService pool = Executors.newWorkStealingPool(jobs);
+        try {
+            for (Unit unit : units) {
+                futures.add(pool.submit(() -> compile(unit)));
+            }
+            List<Result> results = new ArrayList<>(units.size());
+            for (Future<Result> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Falha inesperada no lote", e.getCause());
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            return report(results, elapsed, out);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<Unit> collect(List<Path> inputs) throws IOException {
+        List<Unit> units = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> files = Files.walk(input)) {
+                    files.filter(f -> f.toString().endsWith(SOURCE_SUFFIX) && Files.isRegularFile(f))
+                         .sorted()
+                         .forEach(f -> units.add(new Unit(f, target(input.relativize(f)))));
+                }
+            } else {
+                units.add(new Unit(input, target(input.getFileName())));
+            }
+        }
+        return units;
+    }
+
+    private Path target(Path relative) {
+        String name = relative.getFileName().toString();
+        if (name.endsWith(SOURCE_SUFFIX)) {
+            name = name.substring(0, name.length() - SOURCE_SUFFIX.length());
+        }
+        Path parent = relative.getParent();
+        Path dir = parent != null ? outputDir.resolve(parent) : outputDir;
+        return dir.resolve(name + TARGET_SUFFIX);
+    }
+
+    static void optimize(AST.Program programAst, SymbolTable symbols, CompilerOptions options, CompilerStats stats) {
+        if (options.optimize() < 1) return;
+        stats.begin(CompilerStats.Phase.OPTIMIZE);
+        Optimizer optimizer = new Optimizer();
+        optimizer.optimize(programAst);
+        stats.end(CompilerStats.Phase.OPTIMIZE, optimizer.changes());
+        stats.begin(CompilerStats.Phase.LOOPS);
+        LoopOptimizer loops = new LoopOptimizer(symbols);
+        loops.optimize(programAst);
+        stats.end(CompilerStats.Phase.LOOPS, loops.changes());
+    }
+
+    static Ir lower(AST.Program programAst, SymbolTable symbols, CompilerOptions options, CompilerStats stats) {
+        stats.begin(CompilerStats.Phase.IR);
+        Ir ir = IrBuilder.lower(programAst, symbols);
+        stats.end(CompilerStats.Phase.IR, ir.size());
+        if (options.optimize() >= 2) {
+            stats.begin(CompilerStats.Phase.DATAFLOW);
+            IrOptimizer optimizer = new IrOptimizer(ir);
+            optimizer.optimize();
+            stats.end(CompilerStats.Phase.DATAFLOW, optimizer.changes());
+        }
+        return ir;
+    }
+
+    public static boolean compileFile(Path source, Path target, CompileCache cache, CompilerOptions options,
+                                      CompilerStats stats) throws IOException {
+        stats.begin(CompilerStats.Phase.READ);
+        byte[] bytes = Files.readAllBytes(source);
+        stats.end(CompilerStats.Phase.READ, bytes.length);
+        Path parent = target.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        String key = null;
+        if (cache != null) {
+            key = CompileCache.key(bytes, options);
+            if (cache.restore(key, target)) {
+                return true;
+            }
+        }
+        // The front end runs before target is opened, so a program with errors leaves the previous
+        // output in place.
+        Checked checked = check(new String(bytes, StandardCharsets.UTF_8), options, stats);
+        Ir ir = options.lowersToIr() ? lower(checked.program(), checked.symbols(), options, stats) : null;
+        try (Writer out = new OutputStreamWriter(Files.newOutputStream(target), StandardCharsets.UTF_8)) {
+            generate(checked, ir, options, out, stats);
+            stats.begin(CompilerStats.Phase.WRITE);
+        }
+        stats.end(CompilerStats.Phase.WRITE, stats.isActive() ? Files.size(target) : 0);
+        if (cache != null) {
+            cache.store(key, target);
+        }
+        return false;
+    }
+
+    private Result compile(Unit unit) {
+        long bytes = 0;
+        try {
+            bytes = Files.size(unit.source);
+            CompilerStats fileStats = CompilerStats.forFile(unit.source.toString(), stats != null);
+            compileFile(unit.source, unit.target, cache, options, fileStats);
+            if (stats != null) {
+                stats.merge(fileStats);
+            }
+            return new Result(unit, bytes, null);
+        } catch (Exception e) {
+            return new Result(unit, bytes, e);
+        }
+    }
+
+    private boolean report(List<Result> results, long elapsed, PrintStream out) {
+        int failures = 0;
+        long bytes = 0;
+        for (Result r : results) {
+            bytes += r.bytes;
+            if (r.error != null) {
+                failures++;
+                out.println("ERRO " + r.unit.source + ": " + r.error.getMessage());
+            }
+        }
+        double seconds = elapsed / 1e9;
+        out.println("--- Resumo do Lote ---");
+        out.println("Arquivos: " + results.size() + ", sucesso: " + (results.size() - failures) + ", falhas: " + failures);
+        out.printf("Tempo: %.1f ms com %d threads (%.1f arquivos/s, %.2f MB/s)%n",
+                   elapsed / 1e6, jobs, results.size() / seconds, bytes / 1e6 / seconds);
+        if (cache != null) {
+            cache.printStats(out);
+        }
+        return failures == 0;
+    }
+
+    private record Unit(Path source, Path target) { }
+
+    private record Result(Unit unit, long bytes, Exception error) { }
+}
@@ -0,0 +1,292 @@
+package compiladorespj;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Register bytecode for VirtualMachine, assembled from Ir. Every instruction is four ints in code,
+// op a b c, and jumps name the code index they land on. Registers live in three typed files: ints
+// (intero and booleano, 0 or 1), decimals (decimale) and texts (testo). An Ir value keeps one register
+// for the whole program; constants get registers of their own, preloaded from the *Init arrays, so
+// every operand is a register and the interpreter never looks at a constant pool. An intero comparison
+// read only by the branch right after it becomes one IF_* instruction that compares and jumps.
+public final class Bytecode {
+    public static final int WIDTH = 4;
+
+    public static final int MOVE_I = 0, MOVE_D = 1, MOVE_S = 2, INT_TO_DEC = 3,
+                            ADD_I = 4, SUB_I = 5, MUL_I = 6, DIV_I = 7, MOD_I = 8,
+                            ADD_D = 9, SUB_D = 10, MUL_D = 11, DIV_D = 12, CONCAT = 13,
+                            EQ_I = 14, NE_I = 15, LT_I = 16, GT_I = 17, LE_I = 18, GE_I = 19,
+                            EQ_D = 20, NE_D = 21, LT_D = 22, GT_D = 23, LE_D = 24, GE_D = 25,
+                            EQ_S = 26, NE_S = 27,
+                            READ_I = 28, READ_D = 29, READ_B = 30, READ_S = 31,
+                            WRITE_I = 32, WRITE_D = 33, WRITE_B = 34, WRITE_S = 35, WRITELN = 36,
+                            JUMP = 37, JUMP_IF = 38, JUMP_UNLESS = 39, RETURN_I = 40, RETURN_D = 41,
+                            IF_EQ_I = 42, IF_NE_I = 43, IF_LT_I = 44, IF_GT_I = 45, IF_LE_I = 46, IF_GE_I = 47;
+
+    private static final String[] OP_NAMES = {
+        "move.i", "move.d", "move.s", "i2d",
+        "add.i", "sub.i", "mul.i", "div.i", "mod.i", "add.d", "sub.d", "mul.d", "div.d", "concat",
+        "eq.i", "ne.i", "lt.i", "gt.i", "le.i", "ge.i", "eq.d", "ne.d", "lt.d", "gt.d", "le.d", "ge.d",
+        "eq.s", "ne.s", "read.i", "read.d", "read.b", "read.s",
+        "write.i", "write.d", "write.b", "write.s", "writeln", "jump", "jump.if", "jump.unless",
+        "return.i", "return.d", "if.eq.i", "if.ne.i", "if.lt.i", "if.gt.i", "if.le.i", "if.ge.i"
+    };
+    // The IF_* that jumps exactly when the one at the same offset from IF_EQ_I does not.
+    private static final int[] NEGATED = {IF_NE_I, IF_EQ_I, IF_GE_I, IF_LE_I, IF_GT_I, IF_LT_I};
+    private static final int INT_FILE = 0, DEC_FILE = 1, TEXT_FILE = 2;
+
+    final int[] code;
+    final int[] intInit;
+    final double[] decimalInit;
+    final String[] textInit;
+
+    private Bytecode(int[] code, int[] intInit, double[] decimalInit, String[] textInit) {
+        this.code = code;
+        this.intInit = intInit;
+        this.decimalInit = decimalInit;
+        this.textInit = textInit;
+    }
+
+    public int size() {
+        return code.length / WIDTH;
+    }
+
+    public static Bytecode assemble(Ir ir) {
+        return new Assembler(ir).assemble();
+    }
+
+    public void dump(PrintStream out) {
+        out.println("--- Bytecode: " + size() + " instrucoes, registradores " + intInit.length + " int, "
+                    + decimalInit.length + " decimal, " + textInit.length + " testo ---");
+        for (int pc = 0; pc < code.length; pc += WIDTH) {
+            out.printf("%6d  %-12s %d %d %d%n", pc, OP_NAMES[code[pc]], code[pc + 1], code[pc + 2], code[pc + 3]);
+        }
+    }
+
+    private static int file(Type type) {
+        return switch (type) {
+            case DECIMALE -> DEC_FILE;
+            case TESTO -> TEXT_FILE;
+            default -> INT_FILE;
+        };
+    }
+
+    private static final class Assembler {
+        private final Ir ir;
+        private final int[] register;
+        private final int[] counts = new int[3];
+        private final int[] constantRegister;
+        private final int[] decimalConstant;
+        private int scratch = -1;
+        private int intScratch = -1;
+        private int[] code = new int[256];
+        private int pc;
+        private final List<int[]> fixups = new ArrayList<>();
+        private final int[] uses;
+
+        Assembler(Ir ir) {
+            this.ir = ir;
+            uses = new int[ir.values];
+            for (int k = 0; k < ir.size; k++) {
+                if (ir.arg1[k] >= 0) uses[ir.arg1[k]]++;
+                if (ir.arg2[k] >= 0) uses[ir.arg2[k]]++;
+            }
+            register = new int[ir.values];
+            for (int v = 0; v < ir.values; v++) {
+                register[v] = counts[file(ir.valueType[v])]++;
+            }
+            constantRegister = new int[ir.constantCount];
+            decimalConstant = new int[ir.constantCount];
+            Arrays.fill(decimalConstant, -1);
+            for (int k = 0; k < ir.constantCount; k++) {
+                constantRegister[k] = counts[file(ir.type(-1 - k))]++;
+            }
+        }
+
+        Bytecode assemble() {
+            int[] blockPc = new int[ir.blocks];
+            for (int i = 0; i < ir.laidOut; i++) {
+                int b = ir.layout[i];
+                blockPc[b] = pc;
+                int next = i + 1 < ir.laidOut ? ir.layout[i + 1] : -1;
+                for (int k = ir.blockStart[b]; k < ir.blockEnd[b]; k++) {
+                    if (fusesWithBranch(k)) {
+                        compareAndBranch(k, b, next);
+                        break;
+                    }
+                    instruction(k, b, next);
+                }
+            }
+            for (int[] fixup : fixups) {
+                code[fixup[0]] = blockPc[fixup[1]];
+            }
+
+            int[] ints = new int[counts[INT_FILE]];
+            double[] decimals = new double[counts[DEC_FILE]];
+            String[] texts = new String[counts[TEXT_FILE]];
+            Arrays.fill(texts, "");
+            for (int k = 0; k < ir.constantCount; k++) {
+                Object v = ir.constants[k];
+                int r = constantRegister[k];
+                if (v instanceof Integer i) {
+                    ints[r] = i;
+                    if (decimalConstant[k] >= 0) decimals[decimalConstant[k]] = i;
+                } else if (v instanceof Boolean z) {
+                    ints[r] = z ? 1 : 0;
+                } else if (v instanceof Double d) {
+                    decimals[r] = d;
+                } else {
+                    texts[r] = (String) v;
+                }
+            }
+            return new Bytecode(Arrays.copyOf(code, pc), ints, decimals, texts);
+        }
+
+        private void instruction(int k, int b, int next) {
+            int op = ir.op[k];
+            int res = ir.res[k];
+            int a = ir.arg1[k];
+            int c = ir.arg2[k];
+            switch (op) {
+                case Ir.COPY:
+                    if (ir.type(res) == Type.DECIMALE && ir.type(a) != Type.DECIMALE) {
+                        emit(INT_TO_DEC, reg(res), reg(a), 0);
+                    } else {
+                        emit(move(ir.type(res)), reg(res), reg(a), 0);
+                    }
+                    break;
+                case Ir.READ:
+                    emit(switch (ir.type(res)) {
+                        case DECIMALE -> READ_D;
+                        case BOOLEANO -> READ_B;
+                        case TESTO -> READ_S;
+                        default -> READ_I;
+                    }, reg(res), 0, 0);
+                    break;
+                case Ir.WRITE:
+                    emit(switch (ir.type(a)) {
+                        case DECIMALE -> WRITE_D;
+                        case BOOLEANO -> WRITE_B;
+                        case TESTO -> WRITE_S;
+                        default -> WRITE_I;
+                    }, reg(a), 0, 0);
+                    break;
+                case Ir.WRITELN:
+                    emit(WRITELN, 0, 0, 0);
+                    break;
+                case Ir.JUMP:
+                    if (ir.succ0[b] != next) jump(JUMP, 0, ir.succ0[b]);
+                    break;
+                case Ir.BRANCH:
+                    if (ir.succ1[b] == next) {
+                        jump(JUMP_IF, reg(a), ir.succ0[b]);
+                    } else if (ir.succ0[b] == next) {
+                        jump(JUMP_UNLESS, reg(a), ir.succ1[b]);
+                    } else {
+                        jump(JUMP_IF, reg(a), ir.succ0[b]);
+                        jump(JUMP, 0, ir.succ1[b]);
+                    }
+                    break;
+                case Ir.RETURN:
+                    emit(ir.type(a) == Type.DECIMALE ? RETURN_D : RETURN_I, ir.type(a) == Type.TESTO ? -1 : reg(a), 0, 0);
+                    break;
+                default:
+                    binary(op, res, a, c);
+                    break;
+            }
+        }
+
+        private boolean fusesWithBranch(int k) {
+            int op = ir.op[k];
+            return op >= Ir.EQ && op <= Ir.GE && k + 1 < ir.size && ir.op[k + 1] == Ir.BRANCH
+                   && ir.arg1[k + 1] == ir.res[k] && uses[ir.res[k]] == 1
+                   && isIntRelation(ir.arg1[k]) && isIntRelation(ir.arg2[k]);
+        }
+
+        private boolean isIntRelation(int operand) {
+            Type t = ir.type(operand);
+            return t == Type.INTERO || t == Type.BOOLEANO;
+        }
+
+        // Jumps on the relation, or on its negation when the true successor is the next block.
+        private void compareAndBranch(int k, int b, int next) {
+            int relation = IF_EQ_I + ir.op[k] - Ir.EQ;
+            int a = reg(ir.arg1[k]);
+            int c = reg(ir.arg2[k]);
+            if (ir.succ0[b] == next) {
+                branch(NEGATED[relation - IF_EQ_I], a, c, ir.succ1[b]);
+            } else {
+                branch(relation, a, c, ir.succ0[b]);
+                if (ir.succ1[b] != next) jump(JUMP, 0, ir.succ1[b]);
+            }
+        }
+
+        private void branch(int op, int a, int c, int block) {
+            emit(op, a, c, 0);
+            fixups.add(new int[] {pc - WIDTH + 3, block});
+        }
+
+        // Arithmetic and comparisons take their type from the operands, as in C++; an intero operand of
+        // a decimale operation is widened first, into a scratch register or, for a constant, into a
+        // decimal copy of that constant. An intero operation with a decimale result is computed in an
+        // int scratch register and widened into the result.
+        private void binary(int op, int res, int a, int c) {
+            Type left = ir.type(a);
+            Type right = ir.type(c);
+            if (left == Type.TESTO) {
+                emit(op == Ir.ADD ? CONCAT : op == Ir.EQ ? EQ_S : NE_S, reg(res), reg(a), reg(c));
+            } else if (left == Type.DECIMALE || right == Type.DECIMALE) {
+                int base = op >= Ir.EQ ? EQ_D - Ir.EQ : ADD_D - Ir.ADD;
+                emit(base + op, reg(res), decimal(a, 0), decimal(c, 1));
+            } else if (ir.type(res) == Type.DECIMALE) {
+                if (intScratch < 0) intScratch = counts[INT_FILE]++;
+                emit(ADD_I - Ir.ADD + op, intScratch, reg(a), reg(c));
+                emit(INT_TO_DEC, reg(res), intScratch, 0);
+            } else {
+                int base = op >= Ir.EQ ? EQ_I - Ir.EQ : ADD_I - Ir.ADD;
+                emit(base + op, reg(res), reg(a), reg(c));
+            }
+        }
+
+        private int decimal(int operand, int which) {
+            if (ir.type(operand) == Type.DECIMALE) return reg(operand);
+            if (Ir.isConstant(operand)) {
+                int k = -1 - operand;
+                if (decimalConstant[k] < 0) decimalConstant[k] = counts[DEC_FILE]++;
+                return decimalConstant[k];
+            }
+            if (scratch < 0) {
+                scratch = counts[DEC_FILE];
+                counts[DEC_FILE] += 2;
+            }
+            emit(INT_TO_DEC, scratch + which, reg(operand), 0);
+            return scratch + which;
+        }
+
+        private int reg(int operand) {
+            return Ir.isConstant(operand) ? constantRegister[-1 - operand] : register[operand];
+        }
+
+        private static int move(Type type) {
+            return type == Type.DECIMALE ? MOVE_D : type == Type.TESTO ? MOVE_S : MOVE_I;
+        }
+
+        private void jump(int op, int condition, int block) {
+            emit(op, condition, 0, 0);
+            fixups.add(new int[] {pc - WIDTH + 2, block});
+        }
+
+        private void emit(int op, int a, int b, int c) {
+            if (pc + WIDTH > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            code[pc] = op;
+            code[pc + 1] = a;
+            code[pc + 2] = b;
+            code[pc + 3] = c;
+            pc += WIDTH;
+        }
+    }
+}
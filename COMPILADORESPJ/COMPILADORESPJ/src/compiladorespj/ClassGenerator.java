@@ -0,0 +1,302 @@
+package compiladorespj;
+
+import java.lang.classfile.Attributes;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.classfile.Label;
+import java.lang.classfile.Opcode;
+import java.lang.classfile.instruction.OperatorInstruction;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.ConstantDescs;
+import java.lang.constant.MethodTypeDesc;
+
+// Writes Ir as a JVM class file with a single method, static int run(Console), for JvmProgram to load
+// as a hidden class. The JDK's ClassFile API writes the class and computes the stack map frames.
+// Every value still in use becomes a JVM local of its own type (int for intero and booleano, double,
+// String) and is zeroed on entry, so the verifier sees it assigned on every path. Blocks are laid out
+// in Ir order with jumps to the next block left implicit, and, as in Bytecode, an intero comparison
+// read only by the branch after it becomes one if_icmp.
+final class ClassGenerator {
+    private static final ClassDesc CLASS = ClassDesc.of("compiladorespj.Programma");
+    private static final ClassDesc CONSOLE = ClassDesc.of("compiladorespj.Console");
+    // HotSpot never JIT-compiles a method longer than this (HugeMethodLimit), and interpreted JVM
+    // bytecode would run slower than VirtualMachine does.
+    static final int MAX_CODE = 8000;
+
+    // Indexed by Ir.ADD .. Ir.MOD.
+    private static final Opcode[] INT_ARITHMETIC = {Opcode.IADD, Opcode.ISUB, Opcode.IMUL, Opcode.IDIV, Opcode.IREM};
+    private static final Opcode[] DECIMAL_ARITHMETIC = {Opcode.DADD, Opcode.DSUB, Opcode.DMUL, Opcode.DDIV, Opcode.DREM};
+    // IF[RELATION[n]] and IF_ICMP[RELATION[n]] test the relation Ir.EQ + n; the JVM orders them
+    // eq ne lt ge gt le, so flipping the low bit of the index negates the test.
+    private static final int[] RELATION = {0, 1, 2, 4, 5, 3};
+    private static final Opcode[] IF = {Opcode.IFEQ, Opcode.IFNE, Opcode.IFLT, Opcode.IFGE, Opcode.IFGT, Opcode.IFLE};
+    private static final Opcode[] IF_ICMP = {Opcode.IF_ICMPEQ, Opcode.IF_ICMPNE, Opcode.IF_ICMPLT,
+                                             Opcode.IF_ICMPGE, Opcode.IF_ICMPGT, Opcode.IF_ICMPLE};
+
+    private final Ir ir;
+    private final int[] slot;
+    private final int locals;
+    private final int[] uses;
+    private CodeBuilder code;
+    private Label[] blocks;
+
+    private ClassGenerator(Ir ir) {
+        this.ir = ir;
+        uses = new int[ir.values];
+        boolean[] used = new boolean[ir.values];
+        for (int k = 0; k < ir.size; k++) {
+            if (ir.res[k] >= 0) used[ir.res[k]] = true;
+            if (ir.arg1[k] >= 0) {
+                used[ir.arg1[k]] = true;
+                uses[ir.arg1[k]]++;
+            }
+            if (ir.arg2[k] >= 0) {
+                used[ir.arg2[k]] = true;
+                uses[ir.arg2[k]]++;
+            }
+        }
+        slot = new int[ir.values];
+        int next = 1;
+        for (int v = 0; v < ir.values; v++) {
+            slot[v] = used[v] ? next : -1;
+            if (used[v]) next += ir.valueType[v] == Type.DECIMALE ? 2 : 1;
+        }
+        locals = next;
+    }
+
+    // Returns null when the program does not fit in MAX_CODE bytes or the class file format.
+    static byte[] generate(Ir ir) {
+        return new ClassGenerator(ir).generate();
+    }
+
+    private byte[] generate() {
+        if (locals > 0xffff) return null;
+        byte[] classFile;
+        try {
+            classFile = ClassFile.of().build(CLASS, cb -> cb
+                .withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SUPER)
+                .withMethodBody("run", MethodTypeDesc.of(ConstantDescs.CD_int, CONSOLE),
+                                ClassFile.ACC_PUBLIC | ClassFile.ACC_STATIC, this::method));
+        } catch (IllegalArgumentException e) {
+            // the code, the constant pool or a string is past what a class file can hold
+            return null;
+        }
+        int length = ClassFile.of().parse(classFile).methods().get(0)
+                              .findAttribute(Attributes.code()).orElseThrow().codeLength();
+        return length > MAX_CODE ? null : classFile;
+    }
+
+    private void method(CodeBuilder code) {
+        this.code = code;
+        for (int v = 0; v < ir.values; v++) {
+            if (slot[v] < 0) continue;
+            switch (ir.valueType[v]) {
+                case DECIMALE -> code.dconst_0();
+                case TESTO -> code.loadConstant("");
+                default -> code.iconst_0();
+            }
+            store(v);
+        }
+        blocks = new Label[ir.blocks];
+        for (int b = 0; b < ir.blocks; b++) {
+            blocks[b] = code.newLabel();
+        }
+        for (int i = 0; i < ir.laidOut; i++) {
+            int b = ir.layout[i];
+            code.labelBinding(blocks[b]);
+            int next = i + 1 < ir.laidOut ? ir.layout[i + 1] : -1;
+            for (int k = ir.blockStart[b]; k < ir.blockEnd[b]; k++) {
+                if (fusesWithBranch(k)) {
+                    compareAndBranch(k, b, next);
+                    break;
+                }
+                instruction(k, b, next);
+            }
+        }
+    }
+
+    private void instruction(int k, int b, int next) {
+        int op = ir.op[k];
+        int res = ir.res[k];
+        int a = ir.arg1[k];
+        int c = ir.arg2[k];
+        switch (op) {
+            case Ir.COPY:
+                push(a, ir.type(res) == Type.DECIMALE);
+                store(res);
+                break;
+            case Ir.READ: {
+                Type t = ir.type(res);
+                code.aload(0);
+                push(res, false);
+                switch (t) {
+                    case DECIMALE -> console("readDecimal", "(D)D");
+                    case BOOLEANO -> console("readBoolean", "(I)I");
+                    case TESTO -> console("readText", "(Ljava/lang/String;)Ljava/lang/String;");
+                    default -> console("readInt", "(I)I");
+                }
+                store(res);
+                break;
+            }
+            case Ir.WRITE:
+                code.aload(0);
+                push(a, false);
+                switch (ir.type(a)) {
+                    case DECIMALE -> console("writeDecimal", "(D)V");
+                    case TESTO -> console("writeText", "(Ljava/lang/String;)V");
+                    default -> console("writeInt", "(I)V");
+                }
+                break;
+            case Ir.WRITELN:
+                code.aload(0);
+                console("writeln", "()V");
+                break;
+            case Ir.JUMP:
+                if (ir.succ0[b] != next) code.goto_(blocks[ir.succ0[b]]);
+                break;
+            case Ir.BRANCH:
+                push(a, false);
+                if (ir.succ1[b] == next) {
+                    code.ifne(blocks[ir.succ0[b]]);
+                } else if (ir.succ0[b] == next) {
+                    code.ifeq(blocks[ir.succ1[b]]);
+                } else {
+                    code.ifne(blocks[ir.succ0[b]]);
+                    code.goto_(blocks[ir.succ1[b]]);
+                }
+                break;
+            case Ir.RETURN:
+                if (ir.type(a) == Type.TESTO) {
+                    code.iconst_0();
+                } else if (ir.type(a) == Type.DECIMALE) {
+                    push(a, true);
+                    code.d2i();
+                } else {
+                    push(a, false);
+                }
+                code.ireturn();
+                break;
+            default:
+                if (op >= Ir.EQ) {
+                    compare(op, a, c);
+                } else if (ir.type(res) == Type.TESTO) {
+                    push(a, false);
+                    push(c, false);
+                    invoke(ConstantDescs.CD_String, "concat", "(Ljava/lang/String;)Ljava/lang/String;");
+                } else {
+                    // The operands decide the arithmetic, as in C++: an intero operation stored into a
+                    // decimale is computed on ints and widened only for the store.
+                    boolean decimal = ir.type(a) == Type.DECIMALE || ir.type(c) == Type.DECIMALE;
+                    push(a, decimal);
+                    push(c, decimal);
+                    code.with(OperatorInstruction.of((decimal ? DECIMAL_ARITHMETIC : INT_ARITHMETIC)[op - Ir.ADD]));
+                    if (!decimal && ir.type(res) == Type.DECIMALE) code.i2d();
+                }
+                store(res);
+                break;
+        }
+    }
+
+    private boolean fusesWithBranch(int k) {
+        int op = ir.op[k];
+        return op >= Ir.EQ && op <= Ir.GE && k + 1 < ir.size && ir.op[k + 1] == Ir.BRANCH
+               && ir.arg1[k + 1] == ir.res[k] && uses[ir.res[k]] == 1
+               && isIntRelation(ir.arg1[k]) && isIntRelation(ir.arg2[k]);
+    }
+
+    private boolean isIntRelation(int operand) {
+        Type t = ir.type(operand);
+        return t == Type.INTERO || t == Type.BOOLEANO;
+    }
+
+    private void compareAndBranch(int k, int b, int next) {
+        int relation = RELATION[ir.op[k] - Ir.EQ];
+        push(ir.arg1[k], false);
+        push(ir.arg2[k], false);
+        if (ir.succ0[b] == next) {
+            code.branch(IF_ICMP[relation ^ 1], blocks[ir.succ1[b]]);
+        } else {
+            code.branch(IF_ICMP[relation], blocks[ir.succ0[b]]);
+            if (ir.succ1[b] != next) code.goto_(blocks[ir.succ1[b]]);
+        }
+    }
+
+    // Leaves 0 or 1 on the stack. A decimale comparison uses dcmpg for < and <=, dcmpl otherwise, so
+    // that NaN makes it false as in C++.
+    private void compare(int op, int a, int c) {
+        Type left = ir.type(a);
+        Type right = ir.type(c);
+        if (left == Type.TESTO) {
+            push(a, false);
+            push(c, false);
+            invoke(ConstantDescs.CD_String, "equals", "(Ljava/lang/Object;)Z");
+            if (op == Ir.NE) {
+                code.iconst_1();
+                code.ixor();
+            }
+            return;
+        }
+        int relation = RELATION[op - Ir.EQ];
+        Opcode branch;
+        if (left == Type.DECIMALE || right == Type.DECIMALE) {
+            push(a, true);
+            push(c, true);
+            if (op == Ir.LT || op == Ir.LE) {
+                code.dcmpg();
+            } else {
+                code.dcmpl();
+            }
+            branch = IF[relation];
+        } else {
+            push(a, false);
+            push(c, false);
+            branch = IF_ICMP[relation];
+        }
+        Label holds = code.newLabel();
+        Label done = code.newLabel();
+        code.branch(branch, holds);
+        code.iconst_0();
+        code.goto_(done);
+        code.labelBinding(holds);
+        code.iconst_1();
+        code.labelBinding(done);
+    }
+
+    private void push(int operand, boolean asDecimal) {
+        if (Ir.isConstant(operand)) {
+            Object v = ir.constant(operand);
+            if (v instanceof String s) {
+                code.loadConstant(s);
+            } else if (v instanceof Double || asDecimal) {
+                code.loadConstant(((Number) v).doubleValue());
+            } else {
+                code.loadConstant(v instanceof Boolean z ? (z ? 1 : 0) : (Integer) v);
+            }
+            return;
+        }
+        switch (ir.valueType[operand]) {
+            case DECIMALE -> code.dload(slot[operand]);
+            case TESTO -> code.aload(slot[operand]);
+            default -> {
+                code.iload(slot[operand]);
+                if (asDecimal) code.i2d();
+            }
+        }
+    }
+
+    private void store(int v) {
+        switch (ir.valueType[v]) {
+            case DECIMALE -> code.dstore(slot[v]);
+            case TESTO -> code.astore(slot[v]);
+            default -> code.istore(slot[v]);
+        }
+    }
+
+    private void console(String name, String descriptor) {
+        invoke(CONSOLE, name, descriptor);
+    }
+
+    private void invoke(ClassDesc owner, String name, String descriptor) {
+        code.invokevirtual(owner, name, MethodTypeDesc.ofDescriptor(descriptor));
+    }
+}
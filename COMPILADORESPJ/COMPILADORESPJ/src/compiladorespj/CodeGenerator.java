@@ -1,159 +1,550 @@
 package compiladorespj;
 
 import static compiladorespj.AST.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 
-public class CodeGenerator {
+public class CodeGenerator implements StatementVisitor<Void>, ExpressionVisitor<Void> {
+    private static final int FLUSH_THRESHOLD = 8192;
+    // Longest run of scrivi merged into one cout statement in fast I/O mode; a longer chain of << only
+    // makes the C++ compiler's expression tree deeper.
+    static final int MAX_WRITE_CHAIN = 32;
+    private static final String[] INDENTS = new String[32];
+
+    static {
+        INDENTS[0] = "";
+        for (int i = 1; i < INDENTS.length; i++) {
+            INDENTS[i] = INDENTS[i - 1] + "    ";
+        }
+    }
+
+    private final SymbolTable symbols;
+    private final boolean fastIo;
+    private StringBuilder sb;
+    private Writer out;
+    private char[] chunk;
+    private long written;
+    private int level;
+    private Object[] pending = new Object[16];
+    private int[] pendingNext = new int[16];
+    private int[] pendingLevel = new int[16];
+    private int pendingTop;
+    private Object[] exprItems = new Object[16];
+    private Type[] exprTargets = new Type[16];
+    private int exprTop;
+    private final HashMap<String, Integer> textIndex = new HashMap<>();
+    private final List<String> texts = new ArrayList<>();
+
+    public CodeGenerator(SymbolTable symbols) {
+        this(symbols, false);
+    }
+
+    public CodeGenerator(SymbolTable symbols, boolean fastIo) {
+        this.symbols = symbols;
+        this.fastIo = fastIo;
+    }
 
     public String generate(Program p) {
+        sb = new StringBuilder();
+        out = null;
+        emit(p);
+        return sb.toString();
+    }
+
+    // streams into out in FLUSH_THRESHOLD-sized pieces; the caller owns (and closes) the writer
+    public long generate(Program p, Writer out) throws IOException {
+        sb = new StringBuilder(FLUSH_THRESHOLD + 1024);
+        chunk = new char[FLUSH_THRESHOLD + 1024];
+        written = 0;
+        this.out = out;
+        try {
+            emit(p);
+            flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.out = null;
+        }
+        return written;
+    }
+
+    private void emit(Program p) {
         if (p == null) {
             throw new IllegalArgumentException("No do programa (Program) nao pode ser nulo para geracao de codigo.");
         }
-        StringBuilder sb = new StringBuilder();
-
-        sb.append("#include <iostream>\n");
-        sb.append("#include <string>\n");
-        sb.append("#include <vector>\n");
-        sb.append("#include <stdexcept>\n");
-        sb.append("\n");
-        sb.append("using namespace std;\n\n");
-
-        sb.append("int main() {\n");
+        textIndex.clear();
+        texts.clear();
         if (p.block != null) {
-            genBlock(p.block, sb, "    ");
+            collectTexts(p.block);
+        }
+        appendPrelude(sb, fastIo, texts);
+        level = 0;
+        if (p.block != null) {
+            genBlock(p.block);
         }
         sb.append("    return 0;\n");
         sb.append("}\n");
+    }
 
-        return sb.toString();
+    // Compound statements write their header and then schedule, in reverse, their blocks and the
+    // closing lines that follow them; this loop drains that stack, so nesting never recurses.
+    private void genBlock(Block root) {
+        int base = pendingTop;
+        schedule(root, level + 1);
+        while (pendingTop > base) {
+            int top = pendingTop - 1;
+            Object item = pending[top];
+            level = pendingLevel[top];
+            if (item instanceof String text) {
+                indent().append(text);
+                pending[--pendingTop] = null;
+                continue;
+            }
+            Block b = (Block) item;
+            int next = pendingNext[top];
+            if (next == b.statements.size()) {
+                pending[--pendingTop] = null;
+                continue;
+            }
+            pendingNext[top] = next + 1;
+            Statement st = b.statements.get(next);
+            if (st == null) continue;
+            if (fastIo && st instanceof Write w) {
+                pendingNext[top] = genWrites(b, next, w);
+            } else {
+                st.accept(this);
+            }
+            if (out != null && sb.length() >= FLUSH_THRESHOLD) flush();
+        }
     }
 
-    private void genBlock(Block b, StringBuilder sb, String indent) {
-        if (b == null || b.statements == null) {
+    // Every testo literal, numbered in order of first appearance, for the pool in front of main. The
+    // walk keeps its own stack, like genBlock.
+    private void collectTexts(Block root) {
+        ArrayDeque<Object> work = new ArrayDeque<>();
+        work.push(root);
+        while (!work.isEmpty()) {
+            Object item = work.pop();
+            if (item instanceof Block b) {
+                if (b.statements == null) continue;
+                for (int i = b.statements.size() - 1; i >= 0; i--) {
+                    walk(work, b.statements.get(i));
+                }
+            } else if (item instanceof Literal l) {
+                if (l.value instanceof String s && textIndex.putIfAbsent(s, texts.size()) == null) texts.add(s);
+            } else if (item instanceof BinaryExpr e) {
+                walk(work, e.right);
+                walk(work, e.left);
+            } else if (item instanceof Condition c) {
+                walk(work, c.right);
+                walk(work, c.left);
+                walk(work, c.singleBooleanExpression);
+            } else if (item instanceof VarDecl d) {
+                walk(work, d.init);
+            } else if (item instanceof Assignment a) {
+                walk(work, a.expr);
+            } else if (item instanceof Write w) {
+                if (w.expressions == null) continue;
+                for (int i = w.expressions.size() - 1; i >= 0; i--) {
+                    walk(work, w.expressions.get(i));
+                }
+            } else if (item instanceof IfStmt i) {
+                walk(work, i.elseBlock);
+                walk(work, i.thenBlock);
+                walk(work, i.cond);
+            } else if (item instanceof WhileStmt ws) {
+                walk(work, ws.block);
+                walk(work, ws.cond);
+            } else if (item instanceof ForStmt f) {
+                walk(work, f.block);
+                walk(work, f.update);
+                walk(work, f.cond);
+                walk(work, f.init);
+            } else if (item instanceof ReturnStmt rs) {
+                walk(work, rs.expr);
+            }
+        }
+    }
+
+    private static void walk(ArrayDeque<Object> work, Object item) {
+        if (item != null) work.push(item);
+    }
+
+    private void schedule(Object item, int itemLevel) {
+        if (item == null || item instanceof Block b && b.statements == null) {
             return;
         }
-        for (Statement st : b.statements) {
-            genStmt(st, sb, indent);
+        if (pendingTop == pending.length) {
+            pending = Arrays.copyOf(pending, pendingTop * 2);
+            pendingNext = Arrays.copyOf(pendingNext, pendingTop * 2);
+            pendingLevel = Arrays.copyOf(pendingLevel, pendingTop * 2);
         }
+        pending[pendingTop] = item;
+        pendingNext[pendingTop] = 0;
+        pendingLevel[pendingTop++] = itemLevel;
     }
 
-    private void genStmt(Statement st, StringBuilder sb, String indent) {
-        if (st == null) return;
+    // Lines nested deeper than the table share its last entry, which keeps the output linear in the
+    // size of the source even for pathologically deep programs.
+    private StringBuilder indent() {
+        return sb.append(INDENTS[Math.min(level, INDENTS.length - 1)]);
+    }
+
+    private void flush() {
+        int n = sb.length();
+        if (n == 0) return;
+        if (chunk.length < n) chunk = new char[n];
+        sb.getChars(0, n, chunk, 0);
+        try {
+            out.write(chunk, 0, n);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        written += n;
+        sb.setLength(0);
+    }
+
+    @Override
+    public Void visitVarDecl(VarDecl d) {
+        indent();
+        if (d.isConst) sb.append("const ");
+        sb.append(mapType(d.type)).append(" ").append(d.name);
+        if (!d.isConst && d.init instanceof BinaryExpr b && isConcat(b)) {
+            sb.append(";\n");
+            genConcat(d.name, d.slot, b);
+            return null;
+        }
+        if (d.init != null) {
+            sb.append(" = ");
+            genExpr(d.init, symbols.type(d.slot));
+        }
+        sb.append(";\n");
+        return null;
+    }
 
-        String stmtClassName = st.getClass().getSimpleName();
+    @Override
+    public Void visitAssignment(Assignment a) {
+        if (a.expr instanceof BinaryExpr b && isConcat(b)) {
+            genConcat(a.name, a.slot, b);
+            return null;
+        }
+        indent().append(a.name).append(" = ");
+        genExpr(a.expr, symbols.type(a.slot));
+        sb.append(";\n");
+        return null;
+    }
 
-        switch (stmtClassName) {
-            case "VarDecl":
-                VarDecl d = (VarDecl) st;
-                sb.append(indent);
-                if (d.isConst) sb.append("const ");
-                sb.append(mapType(d.type)).append(" ").append(d.name);
-                if (d.init != null) sb.append(" = ").append(genExpr(d.init));
-                sb.append(";\n");
-                break;
+    @Override
+    public Void visitRead(Read r) {
+        indent().append("cin >> ").append(r.name).append(";\n");
+        return null;
+    }
 
-            case "Assignment":
-                Assignment a = (Assignment) st;
-                sb.append(indent).append(a.name).append(" = ").append(genExpr(a.expr)).append(";\n");
-                break;
+    @Override
+    public Void visitWrite(Write w) {
+        indent().append("cout");
+        appendWrite(w);
+        sb.append(";\n");
+        return null;
+    }
 
-            case "Read":
-                Read r = (Read) st;
-                sb.append(indent).append("cin >> ").append(r.name).append(";\n");
-                break;
+    // Writes w and the scrivi right after it in b as one cout statement; returns the index past them.
+    private int genWrites(Block b, int index, Write w) {
+        indent().append("cout");
+        appendWrite(w);
+        int end = index + 1;
+        while (end < b.statements.size() && end - index < MAX_WRITE_CHAIN && b.statements.get(end) instanceof Write more) {
+            appendWrite(more);
+            end++;
+        }
+        sb.append(";\n");
+        return end;
+    }
 
-            case "Write":
-                Write w = (Write) st;
-                sb.append(indent).append("cout");
-                if (w.expressions != null) {
-                    for (Expression expr : w.expressions) {
-                        sb.append(" << ").append(genExpr(expr));
+    private void appendWrite(Write w) {
+        if (w.expressions != null) {
+            for (Expression expr : w.expressions) {
+                if (expr instanceof BinaryExpr b && isConcat(b)) {
+                    for (Expression part : concatParts(b)) {
+                        sb.append(" << ");
+                        genExpr(part);
                     }
+                } else {
+                    sb.append(" << ");
+                    genExpr(expr);
                 }
-                sb.append(" << endl;\n");
-                break;
-
-            case "IfStmt":
-                IfStmt i = (IfStmt) st;
-                sb.append(indent).append("if (").append(genCond(i.cond)).append(") {\n");
-                genBlock(i.thenBlock, sb, indent + "    ");
-                if (i.elseBlock != null) {
-                    sb.append(indent).append("} else {\n");
-                    genBlock(i.elseBlock, sb, indent + "    ");
-                }
-                sb.append(indent).append("}\n");
-                break;
-
-            case "WhileStmt":
-                WhileStmt ws = (WhileStmt) st;
-                sb.append(indent).append("while (").append(genCond(ws.cond)).append(") {\n");
-                genBlock(ws.block, sb, indent + "    ");
-                sb.append(indent).append("}\n");
-                break;
-
-            case "ForStmt":
-                ForStmt f = (ForStmt) st;
-                sb.append(indent).append("for (")
-                  .append(f.init.name).append(" = ").append(genExpr(f.init.expr)).append("; ")
-                  .append(genCond(f.cond)).append("; ")
-                  .append(f.update.name).append(" = ").append(genExpr(f.update.expr))
-                  .append(") {\n");
-                genBlock(f.block, sb, indent + "    ");
-                sb.append(indent).append("}\n");
-                break;
-
-            case "ReturnStmt":
-                ReturnStmt rs = (ReturnStmt) st;
-                sb.append(indent).append("return ").append(genExpr(rs.expr)).append(";\n");
-                break;
-
-            case "BreakStmt":
-                sb.append(indent).append("break;\n");
-                break;
-
-            default:
-                throw new RuntimeException("CodeGenerator: Geracao de Stmt nao suportado para: " + stmtClassName);
-        }
-    }
-
-    private String genExpr(Expression e) {
-        if (e == null) {
-            throw new IllegalArgumentException("Expressão nao pode ser nula para geracao de codigo.");
-        }
-        String exprClassName = e.getClass().getSimpleName();
-        switch (exprClassName) {
-            case "Literal":
-                Object v = ((Literal) e).value;
-                if (v instanceof String) {
-                    return "\"" + v.toString().replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
-                }
-                if (v instanceof Boolean) return ((Boolean) v) ? "true" : "false";
-                return v.toString();
-            case "Variable":
-                return ((Variable) e).name;
-            case "BinaryExpr":
-                BinaryExpr b = (BinaryExpr) e;
-                return "(" + genExpr(b.left) + " " + mapOp(b.op) + " " + genExpr(b.right) + ")";
-            default:
-                throw new RuntimeException("CodeGenerator: Geracao de Expr nao suportada para: " + exprClassName);
+            }
+        }
+        sb.append(fastIo ? " << '\\n'" : " << endl");
+    }
+
+    // name = a piu b piu ...: appended in place when name is the first operand, otherwise cleared and
+    // refilled, so the string keeps its buffer from one iteration to the next. When name is read further
+    // along the chain it is built aside and assigned.
+    private void genConcat(String name, int slot, BinaryExpr b) {
+        List<Expression> parts = concatParts(b);
+        boolean readLater = false;
+        for (int i = 1; i < parts.size(); i++) {
+            readLater |= parts.get(i) instanceof Variable v && v.slot == slot;
+        }
+        if (readLater) {
+            indent().append(name).append(" = ");
+            genExpr(b);
+            sb.append(";\n");
+            return;
+        }
+        int first = 0;
+        if (parts.get(0) instanceof Variable v && v.slot == slot) {
+            first = 1;
+        } else {
+            indent().append(name).append(".clear();\n");
+            indent().append(name).append(".reserve(");
+            appendSizes(parts);
+            sb.append(");\n");
+        }
+        for (int i = first; i < parts.size(); i++) {
+            indent().append(name).append(".append(");
+            genExpr(parts.get(i));
+            sb.append(");\n");
+        }
+    }
+
+    private void appendSizes(List<Expression> parts) {
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) sb.append(" + ");
+            genExpr(parts.get(i));
+            sb.append(".size()");
+        }
+    }
+
+    private static boolean isConcat(BinaryExpr b) {
+        return b.type == Type.TESTO && "piu".equals(b.op);
+    }
+
+    // The operands of a piu chain on testo, left to right.
+    private static List<Expression> concatParts(BinaryExpr b) {
+        List<Expression> parts = new ArrayList<>();
+        ArrayDeque<Expression> work = new ArrayDeque<>();
+        work.push(b);
+        while (!work.isEmpty()) {
+            Expression e = work.pop();
+            if (e instanceof BinaryExpr c && isConcat(c)) {
+                work.push(c.right);
+                work.push(c.left);
+            } else {
+                parts.add(e);
+            }
+        }
+        return parts;
+    }
+
+    @Override
+    public Void visitIf(IfStmt i) {
+        indent().append("if (");
+        genCond(i.cond);
+        sb.append(") {\n");
+        schedule("}\n", level);
+        if (i.elseBlock != null) {
+            schedule(i.elseBlock, level + 1);
+            schedule("} else {\n", level);
+        }
+        schedule(i.thenBlock, level + 1);
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(WhileStmt ws) {
+        indent().append("while (");
+        genCond(ws.cond);
+        sb.append(") {\n");
+        schedule("}\n", level);
+        schedule(ws.block, level + 1);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(ForStmt f) {
+        indent().append("for (").append(f.init.name).append(" = ");
+        genExpr(f.init.expr, symbols.type(f.init.slot));
+        sb.append("; ");
+        genCond(f.cond);
+        if (f.step != 0) {
+            sb.append("; ").append(f.update.name).append(f.step > 0 ? " += " : " -= ").append(Math.abs(f.step));
+        } else {
+            sb.append("; ").append(f.update.name).append(" = ");
+            genExpr(f.update.expr, symbols.type(f.update.slot));
+        }
+        sb.append(") {\n");
+        schedule("}\n", level);
+        schedule(f.block, level + 1);
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(ReturnStmt rs) {
+        indent().append("return ");
+        genExpr(rs.expr);
+        sb.append(";\n");
+        return null;
+    }
+
+    @Override
+    public Void visitBreak(BreakStmt b) {
+        indent().append("break;\n");
+        return null;
+    }
+
+    private void genExpr(Expression e) {
+        genExpr(e, null);
+    }
+
+    // Same idea for expressions: visitBinary writes "(" and pushes the rest of itself, right to left.
+    private void genExpr(Expression e, Type target) {
+        int base = exprTop;
+        push(e, target);
+        while (exprTop > base) {
+            Object item = exprItems[--exprTop];
+            Type t = exprTargets[exprTop];
+            exprItems[exprTop] = null;
+            if (item instanceof String text) {
+                sb.append(text);
+            } else if (item == null) {
+                throw new IllegalArgumentException("Expressão nao pode ser nula para geracao de codigo.");
+            } else if (t == Type.DECIMALE && item instanceof Literal l && l.type == Type.INTERO) {
+                sb.append(l.value).append(".0");
+            } else {
+                ((Expression) item).accept(this);
+            }
+        }
+    }
+
+    private void push(Object item, Type target) {
+        if (exprTop == exprItems.length) {
+            exprItems = Arrays.copyOf(exprItems, exprTop * 2);
+            exprTargets = Arrays.copyOf(exprTargets, exprTop * 2);
+        }
+        exprItems[exprTop] = item;
+        exprTargets[exprTop++] = target;
+    }
+
+    // In fast I/O mode cout no longer flushes at every line or keeps in step with C stdio; it still
+    // flushes when full, at exit and, being tied to cin, before every read, so prompts show up in time.
+    // Each distinct testo literal is built once, as a string constant ahead of main, and referred to
+    // by name.
+    static void appendPrelude(StringBuilder sb, boolean fastIo, List<String> texts) {
+        sb.append("#include <iostream>\n");
+        sb.append("#include <string>\n");
+        sb.append("#include <vector>\n");
+        sb.append("#include <stdexcept>\n");
+        sb.append("\n");
+        sb.append("using namespace std;\n\n");
+
+        for (int i = 0; i < texts.size(); i++) {
+            appendLiteral(sb.append("static const string ").append(textName(i)).append(" = "), texts.get(i)).append(";\n");
+        }
+        if (!texts.isEmpty()) sb.append("\n");
+
+        sb.append("int main() {\n");
+        if (fastIo) {
+            sb.append("    ios_base::sync_with_stdio(false);\n");
+        }
+    }
+
+    static String textName(int index) {
+        return "_s" + index;
+    }
+
+    static StringBuilder appendLiteral(StringBuilder sb, Object v) {
+        if (v instanceof String) {
+            sb.append('"').append(v.toString().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        } else if (v instanceof Boolean) {
+            sb.append(((Boolean) v) ? "true" : "false");
+        } else {
+            sb.append(v);
+        }
+        return sb;
+    }
+
+    @Override
+    public Void visitLiteral(Literal l) {
+        if (l.value instanceof String s) {
+            sb.append(textName(textIndex.get(s)));
+            return null;
+        }
+        appendLiteral(sb, l.value);
+        return null;
+    }
+
+    @Override
+    public Void visitVariable(Variable v) {
+        sb.append(v.name);
+        return null;
+    }
+
+    @Override
+    public Void visitBinary(BinaryExpr b) {
+        if (isConcat(b)) {
+            pushConcat(concatParts(b));
+            return null;
+        }
+        Type operand = b.type == Type.DECIMALE ? Type.DECIMALE : null;
+        sb.append('(');
+        push(")", null);
+        push(b.right, operand);
+        push(" ", null);
+        push(mapOp(b.op), null);
+        push(" ", null);
+        push(b.left, operand);
+        return null;
+    }
+
+    // A piu chain on testo used as a value: a lambda that sizes one string for all the operands and
+    // appends them in turn, instead of a temporary for every +. Pushed right to left like visitBinary.
+    private void pushConcat(List<Expression> parts) {
+        List<Object> items = new ArrayList<>(parts.size() * 6 + 3);
+        items.add("[&] { string _r; _r.reserve(");
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) items.add(" + ");
+            items.add(parts.get(i));
+            items.add(".size()");
+        }
+        items.add(");");
+        for (Expression part : parts) {
+            items.add(" _r.append(");
+            items.add(part);
+            items.add(");");
+        }
+        items.add(" return _r; }()");
+        for (int i = items.size() - 1; i >= 0; i--) {
+            push(items.get(i), null);
         }
     }
 
-    private String genCond(Condition c) {
+    private void genCond(Condition c) {
         if (c == null) {
             throw new IllegalArgumentException("Condicao nao pode ser nula para geracao de codigo.");
         }
         if (c.singleBooleanExpression != null) {
-            return genExpr(c.singleBooleanExpression);
+            genExpr(c.singleBooleanExpression);
         } else {
             if (c.op == null) {
                 throw new IllegalStateException("CodeGenerator: Operador de condicao (c.op) nulo.");
             }
-            return genExpr(c.left) + " " + mapOp(c.op) + " " + genExpr(c.right);
+            Type operand = c.left.type == Type.DECIMALE || c.right.type == Type.DECIMALE ? Type.DECIMALE : null;
+            genExpr(c.left, operand);
+            sb.append(' ').append(mapOp(c.op)).append(' ');
+            genExpr(c.right, operand);
         }
     }
 
-    private String mapType(String sourceType) {
+    static String mapType(String sourceType) {
         if (sourceType == null) {
              throw new IllegalArgumentException("Tipo de origem nao pode ser nulo em mapType.");
         }
@@ -0,0 +1,201 @@
+package compiladorespj;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+public final class CompileCache {
+    private static final String ENTRY_SUFFIX = ".cpp";
+    private static final Class<?>[] COMPILER_CLASSES = {
+        Lexer.class, KeywordTable.class, TokenKind.class, TokenBuffer.class, SymbolPool.class,
+        Parser.class, AST.class, SemanticAnalyzer.class, SymbolTable.class, Type.class, Optimizer.class,
+        LoopOptimizer.class, CodeGenerator.class, Ir.class, IrBuilder.class, Dataflow.class, IrOptimizer.class, IrCodeGenerator.class,
+        BatchCompiler.class, CompilerOptions.class
+    };
+    private static final byte[] FINGERPRINT = fingerprint();
+
+    private final Path dir;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CompileCache(Path dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(dir)) {
+            list.filter(f -> f.getFileName().toString().endsWith(ENTRY_SUFFIX)).forEach(files::add);
+        }
+        files.sort(Comparator.comparing(CompileCache::lastModified));
+        for (Path f : files) {
+            long size = Files.size(f);
+            entries.put(keyOf(f), size);
+            totalBytes += size;
+        }
+    }
+
+    public static String key(byte[] source, CompilerOptions options) {
+        MessageDigest sha = sha256();
+        sha.update(FINGERPRINT);
+        sha.update(options.toString().getBytes(StandardCharsets.UTF_8));
+        sha.update(source);
+        return HexFormat.of().formatHex(sha.digest());
+    }
+
+    public boolean restore(String key, Path output) {
+        Path entry = dir.resolve(key + ENTRY_SUFFIX);
+        synchronized (entries) {
+            if (entries.get(key) == null) {
+                misses.increment();
+                return false;
+            }
+        }
+        try {
+            byte[] cached = Files.readAllBytes(entry);
+            if (!sameContent(output, cached)) {
+                writeAtomically(output, cached);
+            }
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            synchronized (entries) {
+                Long size = entries.remove(key);
+                if (size != null) totalBytes -= size;
+            }
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+        return true;
+    }
+
+    public void store(String key, Path output) throws IOException {
+        Path entry = dir.resolve(key + ENTRY_SUFFIX);
+        Path tmp = Files.createTempFile(dir, entry.getFileName().toString(), ".tmp");
+        try {
+            Files.copy(output, tmp, StandardCopyOption.REPLACE_EXISTING);
+            moveAtomically(tmp, entry);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        long size = Files.size(entry);
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Long previous = entries.put(key, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String old : evicted) {
+            Files.deleteIfExists(dir.resolve(old + ENTRY_SUFFIX));
+            evictions.increment();
+        }
+    }
+
+    public void printStats(PrintStream out) {
+        long h = hits.sum();
+        long m = misses.sum();
+        long total = h + m;
+        synchronized (entries) {
+            out.printf("Cache: %d acertos, %d faltas (%.1f%% de acerto), %d removidas, %d entradas / %d bytes%n",
+                       h, m, total == 0 ? 0.0 : 100.0 * h / total, evictions.sum(), entries.size(), totalBytes);
+        }
+    }
+
+    static void writeAtomically(Path target, byte[] data) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, data);
+            moveAtomically(tmp, target);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void moveAtomically(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean sameContent(Path output, byte[] expected) throws IOException {
+        if (!Files.isRegularFile(output) || Files.size(output) != expected.length) return false;
+        return Arrays.equals(Files.readAllBytes(output), expected);
+    }
+
+    private static String keyOf(Path entry) {
+        String name = entry.getFileName().toString();
+        return name.substring(0, name.length() - ENTRY_SUFFIX.length());
+    }
+
+    private static FileTime lastModified(Path f) {
+        try {
+            return Files.getLastModifiedTime(f);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponivel", e);
+        }
+    }
+
+    private static byte[] fingerprint() {
+        MessageDigest sha = sha256();
+        for (Class<?> c : COMPILER_CLASSES) {
+            digestClass(sha, c);
+        }
+        return sha.digest();
+    }
+
+    private static void digestClass(MessageDigest sha, Class<?> c) {
+        String resource = c.getName().substring(c.getPackageName().length() + 1) + ".class";
+        try (InputStream in = c.getResourceAsStream(resource)) {
+            if (in != null) {
+                sha.update(in.readAllBytes());
+            } else {
+                sha.update(c.getName().getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Nao foi possivel ler " + c.getName(), e);
+        }
+        for (Class<?> nested : c.getDeclaredClasses()) {
+            digestClass(sha, nested);
+        }
+    }
+}
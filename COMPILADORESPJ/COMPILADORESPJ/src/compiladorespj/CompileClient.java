@@ -0,0 +1,56 @@
+package compiladorespj;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+public final class CompileClient {
+
+    private CompileClient() { }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 2 && (args[1].equals("--status") || args[1].equals("--stop"))) {
+            System.exit(request(args[0], args[1].equals("--status") ? CompileServer.STATUS : CompileServer.STOP));
+        }
+        if (args.length != 3) {
+            System.err.println("Uso: java compiladorespj.CompileClient <socket> <arquivo_de_entrada.cod> <arquivo_de_saida.cpp>");
+            System.err.println("     java compiladorespj.CompileClient <socket> --status|--stop");
+            System.exit(2);
+        }
+        String input = Paths.get(args[1]).toAbsolutePath().toString();
+        String output = Paths.get(args[2]).toAbsolutePath().toString();
+        System.exit(request(args[0], CompileServer.COMPILE + "\t" + input + "\t" + output));
+    }
+
+    private static int request(String socket, String command) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            Writer out = Channels.newWriter(channel, StandardCharsets.UTF_8);
+            BufferedReader in = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+            out.write(command + "\n");
+            out.flush();
+            String line = in.readLine();
+            if (line == null) {
+                System.err.println("Servidor encerrou a conexao sem responder.");
+                return 1;
+            }
+            if (command.equals(CompileServer.STATUS)) {
+                for (; line != null && !line.equals(CompileServer.END); line = in.readLine()) {
+                    System.out.println(line);
+                }
+                return 0;
+            }
+            if (line.startsWith(CompileServer.ERROR)) {
+                System.err.println(line);
+                return 1;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package compiladorespj;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class CompileServer {
+    static final String COMPILE = "COMPILE";
+    static final String STATUS = "STATUS";
+    static final String STOP = "STOP";
+    static final String OK = "OK";
+    static final String ERROR = "ERRO";
+    static final String END = "FIM";
+
+    // A connection with no request in flight for this long is closed, so a client that connects and
+    // never sends anything cannot hold the daemon open.
+    static final long IDLE_TIMEOUT_MS = 30_000;
+
+    private final Path socket;
+    private final int jobs;
+    private final CompileCache cache;
+    private final CompilerOptions options;
+    private final Semaphore slots;
+    private final Histogram latencies = new Histogram();
+    private final LongAdder failures = new LongAdder();
+    private final long startedAt = System.currentTimeMillis();
+    private final Set<Connection> open = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private ServerSocketChannel server;
+
+    public CompileServer(Path socket, int jobs, CompileCache cache, CompilerOptions options) {
+        this.socket = socket;
+        this.jobs = jobs;
+        this.cache = cache;
+        this.options = options;
+        this.slots = new Semaphore(jobs);
+    }
+
+    public void serve(PrintStream log) throws IOException {
+        Files.deleteIfExists(socket);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        log.println("Servidor de compilacao ouvindo em " + socket + " (" + jobs + " compilacoes simultaneas)");
+        ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "compile-server-idle");
+            t.setDaemon(true);
+            return t;
+        });
+        reaper.scheduleWithFixedDelay(this::closeIdle, IDLE_TIMEOUT_MS / 4, IDLE_TIMEOUT_MS / 4, TimeUnit.MILLISECONDS);
+        try (ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor()) {
+            try {
+                while (running) {
+                    SocketChannel client;
+                    try {
+                        client = server.accept();
+                    } catch (IOException e) {
+                        if (!running) break;
+                        throw e;
+                    }
+                    Connection c = new Connection(client);
+                    open.add(c);
+                    // stop() may have swept the open connections between accept() and add()
+                    if (!running) c.closeIfIdle();
+                    connections.submit(() -> handle(c));
+                }
+            } finally {
+                running = false;
+                closeIdleConnections(Long.MAX_VALUE);
+            }
+        } finally {
+            reaper.shutdownNow();
+            server.close();
+            Files.deleteIfExists(socket);
+        }
+        log.println("Servidor de compilacao encerrado.");
+    }
+
+    // Reads and writes go straight to the channel rather than through Channels.newReader/newWriter:
+    // those decode under a monitor, and a virtual thread blocked inside one pins its carrier, so a
+    // handful of idle clients would stall every other connection.
+    private void handle(Connection c) {
+        try (c.channel) {
+            String line;
+            while ((line = c.readLine()) != null) {
+                // lost to the reaper or stop(): the channel is already closed, so nothing is compiled
+                if (!c.state.compareAndSet(Connection.IDLE, Connection.BUSY)) break;
+                if (!running) break;
+                c.write(dispatch(line));
+                c.lastActive = System.currentTimeMillis();
+                c.state.set(Connection.IDLE);
+                if (!running) break;
+            }
+        } catch (IOException e) {
+            // the client went away mid-request, or was closed for idling or by stop()
+        } finally {
+            open.remove(c);
+        }
+    }
+
+    private void closeIdle() {
+        closeIdleConnections(System.currentTimeMillis() - IDLE_TIMEOUT_MS);
+    }
+
+    // Closes every connection without a request in flight whose last activity is before the given
+    // time; a blocked read then fails and its handler returns. Busy ones are skipped, and once stop()
+    // has been called their handlers close them after answering. Whether a connection is closed here
+    // or taken busy by its handler is decided by one compare-and-set on its state, so a request that
+    // has arrived is either answered or never started.
+    private void closeIdleConnections(long before) {
+        for (Connection c : open) {
+            if (c.lastActive < before) c.closeIfIdle();
+        }
+    }
+
+    private String dispatch(String line) {
+        String[] parts = line.split("\t");
+        switch (parts[0]) {
+            case COMPILE:
+                if (parts.length != 3) return ERROR + " Uso: COMPILE<TAB>entrada<TAB>saida\n";
+                return compile(Paths.get(parts[1]), Paths.get(parts[2]));
+            case STATUS:
+                return status();
+            case STOP:
+                stop();
+                return OK + "\n";
+            default:
+                return ERROR + " Comando desconhecido: " + parts[0] + "\n";
+        }
+    }
+
+    private String compile(Path source, Path target) {
+        long start = System.nanoTime();
+        boolean cached;
+        try {
+            slots.acquire();
+            try {
+                cached = BatchCompiler.compileFile(source, target, cache, options, CompilerStats.forFile(source.toString(), false));
+            } finally {
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ERROR + " Servidor interrompido\n";
+        } catch (Exception e) {
+            failures.increment();
+            return ERROR + " " + oneLine(e.getMessage()) + "\n";
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        latencies.record(micros);
+        return OK + " " + micros + (cached ? " cache" : "") + "\n";
+    }
+
+    private String status() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Ativo ha ").append((System.currentTimeMillis() - startedAt) / 1000).append(" s, ")
+          .append(latencies.count()).append(" compilacoes, ").append(failures.sum()).append(" falhas\n");
+        sb.append("p50 <= ").append(latencies.percentile(0.50)).append(" us, p99 <= ")
+          .append(latencies.percentile(0.99)).append(" us\n");
+        latencies.appendTo(sb);
+        sb.append(END).append("\n");
+        return sb.toString();
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            if (server != null) server.close();
+        } catch (IOException e) {
+            // accept() is already failing; serve() cleans up the socket file
+        }
+        closeIdleConnections(Long.MAX_VALUE);
+    }
+
+    private static String oneLine(String message) {
+        return message == null ? "erro desconhecido" : message.replace('\n', ' ').replace('\r', ' ');
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        private final ByteBuffer in = ByteBuffer.allocate(8192).flip();
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        static final int IDLE = 0, BUSY = 1, CLOSED = 2;
+
+        volatile long lastActive = System.currentTimeMillis();
+        final AtomicInteger state = new AtomicInteger(IDLE);
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        // The next line without its terminator, or null once the client has closed its side.
+        String readLine() throws IOException {
+            line.reset();
+            while (true) {
+                while (in.hasRemaining()) {
+                    byte b = in.get();
+                    if (b == '\n') return line.toString(StandardCharsets.UTF_8);
+                    if (b != '\r') line.write(b);
+                }
+                in.clear();
+                int n = channel.read(in);
+                in.flip();
+                if (n > 0) lastActive = System.currentTimeMillis();
+                if (n < 0) return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8);
+            }
+        }
+
+        void write(String text) throws IOException {
+            ByteBuffer out = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+        }
+
+        void closeIfIdle() {
+            if (!state.compareAndSet(IDLE, CLOSED)) return;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+    }
+
+    static final class Histogram {
+        private static final int BUCKETS = 40;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+
+        void record(long micros) {
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            counts.incrementAndGet(bucket);
+            total.increment();
+        }
+
+        long count() {
+            return total.sum();
+        }
+
+        long percentile(double p) {
+            long n = count();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(p * n);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += counts.get(b);
+                if (seen >= rank) return upperBound(b);
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        void appendTo(StringBuilder sb) {
+            for (int b = 0; b < BUCKETS; b++) {
+                long c = counts.get(b);
+                if (c == 0) continue;
+                sb.append("  <= ").append(upperBound(b)).append(" us: ").append(c).append("\n");
+            }
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == 0 ? 0 : (1L << bucket) - 1;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package compiladorespj;
+
+// Everything besides the source text that changes the generated C++. The record's toString is part
+// of the cache key, so a field added here automatically separates cache entries. ir selects the
+// IrCodeGenerator backend over the AST one; -O2 and up imply it, since their passes work on the IR.
+// fastIo makes either backend write buffered, unsynchronized output (see CodeGenerator.appendPrelude).
+public record CompilerOptions(int optimize, boolean ir, boolean fastIo) {
+    public static final CompilerOptions DEFAULT = new CompilerOptions(0);
+
+    public CompilerOptions(int optimize) {
+        this(optimize, false, false);
+    }
+
+    public boolean lowersToIr() {
+        return ir || optimize >= 2;
+    }
+
+    // -O alone is -O1. Levels above 2 are rejected rather than clamped, so that they do not get cache
+    // entries of their own for the same C++ as -O2.
+    public static int parseLevel(String flag) {
+        if (flag.length() == 2) return 1;
+        int level;
+        try {
+            level = Integer.parseInt(flag.substring(2));
+        } catch (NumberFormatException e) {
+            level = -1;
+        }
+        if (level < 0 || level > 2) {
+            throw new IllegalArgumentException("Nivel de otimizacao invalido: " + flag + " (use -O0, -O1 ou -O2)");
+        }
+        return level;
+    }
+}
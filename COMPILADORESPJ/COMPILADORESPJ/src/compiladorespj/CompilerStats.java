@@ -0,0 +1,215 @@
+package compiladorespj;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+public final class CompilerStats {
+
+    public enum Phase {
+        READ("leitura", "bytes"),
+        LEX("lexica", "tokens"),
+        PARSE("sintatica", "nos da AST"),
+        LEX_PARSE("lexica+sintatica", "tokens"),
+        SEMANTIC("semantica", "simbolos"),
+        OPTIMIZE("otimizacao", "simplificacoes"),
+        LOOPS("lacos", "expressoes movidas"),
+        IR("ir", "instrucoes de IR"),
+        DATAFLOW("fluxo de dados", "reescritas"),
+        BYTECODE("bytecode", "instrucoes de bytecode"),
+        CLASSFILE("classe jvm", "bytes de classe"),
+        CODEGEN("geracao", "caracteres de C++"),
+        WRITE("escrita", "bytes");
+
+        private final String label;
+        private final String unit;
+
+        Phase(String label, String unit) {
+            this.label = label;
+            this.unit = unit;
+        }
+
+        public String label() { return label; }
+        public String unit() { return unit; }
+    }
+
+    private static final int PHASES = Phase.values().length;
+    private static final CompilerStats DISABLED = new CompilerStats("", false);
+
+    private final String file;
+    private final boolean active;
+    private final long[] nanos = new long[PHASES];
+    private final long[] allocated = new long[PHASES];
+    private final long[] items = new long[PHASES];
+    private final int[] runs = new int[PHASES];
+    private int files;
+
+    private Phase current;
+    private long startNanos;
+    private long startAllocated;
+    private PhaseEvent event;
+
+    private CompilerStats(String file, boolean active) {
+        this.file = file;
+        this.active = active;
+        this.files = 1;
+    }
+
+    public static CompilerStats forFile(String file, boolean requested) {
+        return requested || FlightRecorder.isInitialized() ? new CompilerStats(file, true) : DISABLED;
+    }
+
+    public static CompilerStats aggregate() {
+        CompilerStats stats = new CompilerStats("*", true);
+        stats.files = 0;
+        return stats;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public void begin(Phase phase) {
+        if (!active) return;
+        current = phase;
+        event = new PhaseEvent();
+        event.begin();
+        startAllocated = allocatedBytes();
+        startNanos = System.nanoTime();
+    }
+
+    public void end(Phase phase, long count) {
+        if (!active) return;
+        long elapsed = System.nanoTime() - startNanos;
+        long bytes = startAllocated < 0 ? -1 : allocatedBytes() - startAllocated;
+        if (phase != current) {
+            throw new IllegalStateException("Fase '" + phase.label() + "' encerrada sem ter sido iniciada.");
+        }
+        int i = phase.ordinal();
+        nanos[i] += elapsed;
+        allocated[i] += bytes;
+        items[i] += count;
+        runs[i]++;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase.label();
+            event.file = file;
+            event.items = count;
+            event.unit = phase.unit();
+            event.allocatedBytes = bytes;
+            event.commit();
+        }
+        current = null;
+        event = null;
+    }
+
+    public synchronized void merge(CompilerStats other) {
+        if (!other.active) return;
+        for (int i = 0; i < PHASES; i++) {
+            nanos[i] += other.nanos[i];
+            allocated[i] += other.allocated[i];
+            items[i] += other.items[i];
+            runs[i] += other.runs[i];
+        }
+        files += other.files;
+    }
+
+    public synchronized void print(PrintStream out) {
+        out.println("--- Estatisticas por Fase (" + (files == 1 ? file : files + " arquivos") + ") ---");
+        out.printf("%-18s %12s %14s %14s%n", "fase", "tempo (ms)", "alocado (KB)", "itens");
+        long totalNanos = 0;
+        long totalAllocated = 0;
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            if (runs[i] == 0) continue;
+            totalNanos += nanos[i];
+            totalAllocated += allocated[i];
+            out.printf("%-18s %12.3f %14s %14d %s%n", phase.label(), nanos[i] / 1e6,
+                       allocated[i] < 0 ? "n/d" : String.format("%.1f", allocated[i] / 1024.0), items[i], phase.unit());
+        }
+        out.printf("%-18s %12.3f %14s%n", "total", totalNanos / 1e6,
+                   totalAllocated < 0 ? "n/d" : String.format("%.1f", totalAllocated / 1024.0));
+    }
+
+    public synchronized void writeJson(Path path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"file\": \"").append(escape(file)).append("\",\n");
+        sb.append("  \"files\": ").append(files).append(",\n");
+        sb.append("  \"phases\": [");
+        boolean first = true;
+        for (Phase phase : Phase.values()) {
+            int i = phase.ordinal();
+            if (runs[i] == 0) continue;
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append("    {\"phase\": \"").append(phase.label())
+              .append("\", \"nanos\": ").append(nanos[i])
+              .append(", \"allocatedBytes\": ").append(allocated[i])
+              .append(", \"items\": ").append(items[i])
+              .append(", \"unit\": \"").append(phase.unit()).append("\"}");
+        }
+        sb.append("\n  ]\n}\n");
+        Files.writeString(path, sb.toString());
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = Allocation.THREADS;
+        return threads != null ? threads.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static final class Allocation {
+        static final com.sun.management.ThreadMXBean THREADS = threads();
+
+        private static com.sun.management.ThreadMXBean threads() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean t
+                    && t.isThreadAllocatedMemorySupported() && t.isThreadAllocatedMemoryEnabled()) {
+                return t;
+            }
+            return null;
+        }
+    }
+
+    @Name("compiladorespj.Phase")
+    @Label("Fase do Compilador")
+    @Category("COMPILADORESPJ")
+    static final class PhaseEvent extends Event {
+        @Label("Fase")
+        String phase;
+
+        @Label("Arquivo")
+        String file;
+
+        @Label("Itens")
+        long items;
+
+        @Label("Unidade")
+        String unit;
+
+        @Label("Alocado")
+        @DataAmount
+        long allocatedBytes;
+    }
+}
@@ -0,0 +1,221 @@
+package compiladorespj;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+// leggi and scrivi for the in-process backends, behaving as cin >> and cout << do in the generated C++.
+// Input is whitespace-separated; a malformed number stores 0 and sets the fail state, and from then on,
+// as at end of input, reads leave their variable alone, which is why each read takes the current
+// value and returns the new one. booleano prints as 0/1 and decimale as %g with six significant
+// digits. Output is buffered and flushed before every read and by the caller at the end, the way cout
+// is tied to cin. Classes generated by ClassGenerator call these methods directly.
+final class Console {
+    private static final MathContext SIX_DIGITS = new MathContext(6, RoundingMode.HALF_EVEN);
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    private final Reader in;
+    private final Writer out;
+    private final StringBuilder sb = new StringBuilder(FLUSH_THRESHOLD);
+    private final char[] buf = new char[8192];
+    private int pos;
+    private int len;
+    private boolean failed;
+    private boolean justFailed;
+
+    Console(Reader in, Writer out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    void writeInt(int v) {
+        sb.append(v);
+    }
+
+    void writeDecimal(double v) {
+        appendDecimal(sb, v);
+    }
+
+    void writeText(String v) {
+        sb.append(v);
+    }
+
+    void writeln() throws IOException {
+        sb.append('\n');
+        if (sb.length() >= FLUSH_THRESHOLD) {
+            out.append(sb);
+            sb.setLength(0);
+        }
+    }
+
+    void flush() throws IOException {
+        out.append(sb);
+        sb.setLength(0);
+        out.flush();
+    }
+
+    int readInt(int current) throws IOException {
+        flush();
+        long v = readLong();
+        if (failed && !justFailed) return current;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, v));
+    }
+
+    int readBoolean(int current) throws IOException {
+        flush();
+        long v = readLong();
+        if (failed && !justFailed) return current;
+        if (v != 0 && v != 1) fail();
+        return v == 0 ? 0 : 1;
+    }
+
+    double readDecimal(double current) throws IOException {
+        flush();
+        double v = readDouble();
+        if (failed && !justFailed) return current;
+        return v;
+    }
+
+    String readText(String current) throws IOException {
+        flush();
+        String v = readWord();
+        return v != null ? v : current;
+    }
+
+    // C++ prints a double with %g at precision 6: six significant digits, trailing zeros dropped, and
+    // scientific notation when the exponent is below -4 or at least 6.
+    static StringBuilder appendDecimal(StringBuilder sb, double v) {
+        if (Double.isNaN(v)) return sb.append(Double.doubleToRawLongBits(v) < 0 ? "-nan" : "nan");
+        if (Double.isInfinite(v)) return sb.append(v > 0 ? "inf" : "-inf");
+        if (v == 0) return sb.append(1 / v < 0 ? "-0" : "0");
+        if (v == Math.rint(v) && Math.abs(v) < 1e6) return sb.append((long) v);
+        BigDecimal rounded = new BigDecimal(v).round(SIX_DIGITS);
+        int exponent = rounded.precision() - rounded.scale() - 1;
+        if (exponent < -4 || exponent >= 6) {
+            BigDecimal mantissa = rounded.movePointLeft(exponent).stripTrailingZeros();
+            sb.append(mantissa.toPlainString()).append(exponent < 0 ? "e-" : "e+");
+            int e = Math.abs(exponent);
+            if (e < 10) sb.append('0');
+            return sb.append(e);
+        }
+        return sb.append(rounded.stripTrailingZeros().toPlainString());
+    }
+
+    // Numbers take the longest prefix that parses and leave the rest in the stream; after a failure
+    // nothing more is read.
+    private int peek() throws IOException {
+        if (pos == len) {
+            len = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (len <= 0) {
+                len = 0;
+                return -1;
+            }
+        }
+        return buf[pos];
+    }
+
+    private boolean skipSpace() throws IOException {
+        justFailed = false;
+        if (failed) return false;
+        int ch;
+        while ((ch = peek()) >= 0 && Character.isWhitespace(ch)) pos++;
+        if (ch < 0) {
+            failed = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void fail() {
+        failed = true;
+        justFailed = true;
+    }
+
+    private long readLong() throws IOException {
+        if (!skipSpace()) return 0;
+        boolean negative = false;
+        int ch = peek();
+        if (ch == '-' || ch == '+') {
+            negative = ch == '-';
+            pos++;
+        }
+        long v = 0;
+        int digits = 0;
+        while ((ch = peek()) >= '0' && ch <= '9') {
+            pos++;
+            if (v <= Integer.MAX_VALUE + 1L) v = v * 10 + (ch - '0');
+            digits++;
+        }
+        if (digits == 0) {
+            fail();
+            return 0;
+        }
+        v = negative ? -v : v;
+        if (v > Integer.MAX_VALUE || v < Integer.MIN_VALUE) fail();
+        return v;
+    }
+
+    private double readDouble() throws IOException {
+        if (!skipSpace()) return 0;
+        StringBuilder s = new StringBuilder();
+        int ch = peek();
+        if (ch == '-' || ch == '+') {
+            s.append((char) ch);
+            pos++;
+        }
+        int digits = 0;
+        while ((ch = peek()) >= '0' && ch <= '9') {
+            s.append((char) ch);
+            pos++;
+            digits++;
+        }
+        if (ch == '.') {
+            s.append('.');
+            pos++;
+            while ((ch = peek()) >= '0' && ch <= '9') {
+                s.append((char) ch);
+                pos++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            fail();
+            return 0;
+        }
+        if (ch == 'e' || ch == 'E') {
+            s.append('e');
+            pos++;
+            ch = peek();
+            if (ch == '-' || ch == '+') {
+                s.append((char) ch);
+                pos++;
+            }
+            boolean any = false;
+            while ((ch = peek()) >= '0' && ch <= '9') {
+                s.append((char) ch);
+                pos++;
+                any = true;
+            }
+            if (!any) {
+                fail();
+                return 0;
+            }
+        }
+        return Double.parseDouble(s.toString());
+    }
+
+    private String readWord() throws IOException {
+        if (!skipSpace()) return null;
+        StringBuilder s = new StringBuilder();
+        int ch;
+        while ((ch = peek()) >= 0 && !Character.isWhitespace(ch)) {
+            s.append((char) ch);
+            pos++;
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,130 @@
+package compiladorespj;
+
+import java.util.Arrays;
+
+// Iterative solver for gen/kill problems over the CFG of an Ir. Every block has one set on its meet side
+// (in for a forward problem, out for a backward one) and one on its result side, result = gen | (meet & ~kill).
+// Sets are bit vectors of words longs per block, all blocks packed into one long[]; gen and kill come in
+// the same layout. The entry of a forward problem and the exits of a backward one start from the empty
+// set; any other block with nothing to meet from is unreachable and starts from the meet's identity.
+final class Dataflow {
+    final int words;
+    final long[] in;
+    final long[] out;
+
+    private Dataflow(int words, long[] in, long[] out) {
+        this.words = words;
+        this.in = in;
+        this.out = out;
+    }
+
+    static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    static boolean get(long[] set, int base, int bit) {
+        return (set[base + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    static void set(long[] set, int base, int bit) {
+        set[base + (bit >>> 6)] |= 1L << bit;
+    }
+
+    static void clear(long[] set, int base, int bit) {
+        set[base + (bit >>> 6)] &= ~(1L << bit);
+    }
+
+    // Blocks are queued in layout order for a forward problem and in reverse for a backward one; layout
+    // follows the source, so most blocks see their inputs settled before they are first visited.
+    static Dataflow solve(Ir ir, int bits, long[] gen, long[] kill, boolean forward, boolean intersect) {
+        int words = words(bits);
+        int blocks = ir.blocks;
+        // The full set, where intersection starts, must not reach past bit bits - 1.
+        long lastWord = (bits & 63) == 0 ? -1L : (1L << bits) - 1;
+        long[] in = new long[blocks * words];
+        long[] out = new long[blocks * words];
+        long[] meet = forward ? in : out;
+        long[] result = forward ? out : in;
+        if (intersect) {
+            Arrays.fill(result, -1L);
+            for (int b = 0; b < blocks; b++) {
+                result[b * words + words - 1] = lastWord;
+            }
+        }
+
+        int[] queue = new int[blocks];
+        boolean[] queued = new boolean[blocks];
+        int head = 0;
+        int count = 0;
+        for (int i = 0; i < ir.laidOut; i++) {
+            int b = ir.layout[forward ? i : ir.laidOut - 1 - i];
+            queue[count++] = b;
+            queued[b] = true;
+        }
+        int entry = ir.layout[0];
+        while (count > 0) {
+            int b = queue[head];
+            head = head + 1 == blocks ? 0 : head + 1;
+            count--;
+            queued[b] = false;
+
+            int base = b * words;
+            boolean first = true;
+            if (forward) {
+                if (b != entry) {
+                    for (int p = ir.predStart[b]; p < ir.predStart[b + 1]; p++) {
+                        first = meet(meet, base, result, ir.preds[p] * words, words, intersect, first);
+                    }
+                }
+            } else {
+                if (ir.succ0[b] >= 0) first = meet(meet, base, result, ir.succ0[b] * words, words, intersect, first);
+                if (ir.succ1[b] >= 0) first = meet(meet, base, result, ir.succ1[b] * words, words, intersect, first);
+            }
+            if (first && intersect && forward && b != entry) {
+                Arrays.fill(meet, base, base + words, -1L);
+                meet[base + words - 1] = lastWord;
+            } else if (first) {
+                Arrays.fill(meet, base, base + words, 0L);
+            }
+
+            boolean changed = false;
+            for (int w = 0; w < words; w++) {
+                long v = gen[base + w] | (meet[base + w] & ~kill[base + w]);
+                if (v != result[base + w]) {
+                    result[base + w] = v;
+                    changed = true;
+                }
+            }
+            if (!changed) continue;
+            if (forward) {
+                for (int k = 0; k < 2; k++) {
+                    int s = k == 0 ? ir.succ0[b] : ir.succ1[b];
+                    if (s >= 0 && !queued[s]) {
+                        queue[(head + count++) % blocks] = s;
+                        queued[s] = true;
+                    }
+                }
+            } else {
+                for (int p = ir.predStart[b]; p < ir.predStart[b + 1]; p++) {
+                    int s = ir.preds[p];
+                    if (!queued[s]) {
+                        queue[(head + count++) % blocks] = s;
+                        queued[s] = true;
+                    }
+                }
+            }
+        }
+        return new Dataflow(words, in, out);
+    }
+
+    private static boolean meet(long[] meet, int base, long[] result, int from, int words, boolean intersect, boolean first) {
+        if (first) {
+            System.arraycopy(result, from, meet, base, words);
+        } else if (intersect) {
+            for (int w = 0; w < words; w++) meet[base + w] &= result[from + w];
+        } else {
+            for (int w = 0; w < words; w++) meet[base + w] |= result[from + w];
+        }
+        return false;
+    }
+}
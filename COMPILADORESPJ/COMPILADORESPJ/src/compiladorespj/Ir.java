@@ -0,0 +1,249 @@
+package compiladorespj;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+
+// Three-address code in parallel primitive arrays. Instruction i is op[i] res[i] arg1[i] arg2[i].
+// Operands >= 0 are values: the program's variables (their SymbolTable slots) followed by
+// temporaries; operands < 0 are constants, -1 - k naming constants[k]. Blocks are contiguous
+// instruction ranges ending in JUMP, BRANCH or RETURN; their successors live in succ0/succ1 and
+// their predecessors, once finish() has run, in preds[predStart[b] .. predStart[b + 1]).
+public final class Ir {
+    public static final int COPY = 0, ADD = 1, SUB = 2, MUL = 3, DIV = 4, MOD = 5,
+                            EQ = 6, NE = 7, LT = 8, GT = 9, LE = 10, GE = 11,
+                            READ = 12, WRITE = 13, WRITELN = 14,
+                            JUMP = 15, BRANCH = 16, RETURN = 17;
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final String[] OP_NAMES = {
+        "copy", "add", "sub", "mul", "div", "mod", "eq", "ne", "lt", "gt", "le", "ge",
+        "read", "write", "writeln", "jump", "branch", "return"
+    };
+
+    final int variables;
+    int values;
+    Type[] valueType;
+    String[] valueName;
+
+    Object[] constants = new Object[16];
+    int constantCount;
+    private final HashMap<Object, Integer> constantIndex = new HashMap<>();
+
+    int size;
+    int[] op = new int[64];
+    int[] res = new int[64];
+    int[] arg1 = new int[64];
+    int[] arg2 = new int[64];
+
+    int blocks;
+    int[] blockStart = new int[16];
+    int[] blockEnd = new int[16];
+    int[] succ0 = new int[16];
+    int[] succ1 = new int[16];
+    int[] layout = new int[16];
+    int laidOut;
+    int[] predStart;
+    int[] preds;
+
+    private int current = -1;
+
+    Ir(SymbolTable symbols) {
+        variables = symbols.size();
+        values = variables;
+        valueType = new Type[Math.max(16, variables * 2)];
+        valueName = new String[valueType.length];
+        for (int slot = 0; slot < variables; slot++) {
+            valueType[slot] = symbols.type(slot);
+            valueName[slot] = symbols.name(slot);
+        }
+    }
+
+    public int size() { return size; }
+    public int blocks() { return blocks; }
+
+    public static boolean isConstant(int operand) {
+        return operand < 0 && operand != NONE;
+    }
+
+    public Object constant(int operand) {
+        return constants[-1 - operand];
+    }
+
+    public Type type(int operand) {
+        if (!isConstant(operand)) return valueType[operand];
+        Object v = constant(operand);
+        if (v instanceof Integer) return Type.INTERO;
+        if (v instanceof Double) return Type.DECIMALE;
+        if (v instanceof Boolean) return Type.BOOLEANO;
+        return Type.TESTO;
+    }
+
+    public static boolean isTerminator(int op) {
+        return op >= JUMP;
+    }
+
+    // --- construction, used by IrBuilder ---
+
+    int temp(Type type) {
+        if (values == valueType.length) {
+            valueType = Arrays.copyOf(valueType, values * 2);
+            valueName = Arrays.copyOf(valueName, values * 2);
+        }
+        valueType[values] = type;
+        return values++;
+    }
+
+    int constantOf(Object value) {
+        Integer k = constantIndex.get(value);
+        if (k == null) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            k = constantCount;
+            constants[constantCount++] = value;
+            constantIndex.put(value, k);
+        }
+        return -1 - k;
+    }
+
+    int newBlock() {
+        if (blocks == blockStart.length) {
+            int n = blocks * 2;
+            blockStart = Arrays.copyOf(blockStart, n);
+            blockEnd = Arrays.copyOf(blockEnd, n);
+            succ0 = Arrays.copyOf(succ0, n);
+            succ1 = Arrays.copyOf(succ1, n);
+            layout = Arrays.copyOf(layout, n);
+        }
+        succ0[blocks] = -1;
+        succ1[blocks] = -1;
+        return blocks++;
+    }
+
+    void startBlock(int b) {
+        blockStart[b] = size;
+        layout[laidOut++] = b;
+        current = b;
+    }
+
+    void emit(int opcode, int result, int a, int b) {
+        if (size == op.length) {
+            int n = size * 2;
+            op = Arrays.copyOf(op, n);
+            res = Arrays.copyOf(res, n);
+            arg1 = Arrays.copyOf(arg1, n);
+            arg2 = Arrays.copyOf(arg2, n);
+        }
+        op[size] = opcode;
+        res[size] = result;
+        arg1[size] = a;
+        arg2[size++] = b;
+    }
+
+    void jump(int target) {
+        emit(JUMP, NONE, NONE, NONE);
+        succ0[current] = target;
+        blockEnd[current] = size;
+    }
+
+    void branch(int condition, int ifTrue, int ifFalse) {
+        emit(BRANCH, NONE, condition, NONE);
+        succ0[current] = ifTrue;
+        succ1[current] = ifFalse;
+        blockEnd[current] = size;
+    }
+
+    void ret(int value) {
+        emit(RETURN, NONE, value, NONE);
+        blockEnd[current] = size;
+    }
+
+    void finish() {
+        int[] count = new int[blocks + 1];
+        for (int b = 0; b < blocks; b++) {
+            if (succ0[b] >= 0) count[succ0[b] + 1]++;
+            if (succ1[b] >= 0) count[succ1[b] + 1]++;
+        }
+        for (int b = 0; b < blocks; b++) {
+            count[b + 1] += count[b];
+        }
+        predStart = count.clone();
+        preds = new int[count[blocks]];
+        for (int b = 0; b < blocks; b++) {
+            if (succ0[b] >= 0) preds[count[succ0[b]]++] = b;
+            if (succ1[b] >= 0) preds[count[succ1[b]]++] = b;
+        }
+    }
+
+    // Drops the marked instructions, shifting the rest down. Blocks keep their order and edges; a
+    // terminator is never marked, so no block ends up empty.
+    void compact(boolean[] removed) {
+        int[] kept = new int[size + 1];
+        int n = 0;
+        for (int k = 0; k < size; k++) {
+            kept[k] = n;
+            if (removed[k]) continue;
+            op[n] = op[k];
+            res[n] = res[k];
+            arg1[n] = arg1[k];
+            arg2[n++] = arg2[k];
+        }
+        kept[size] = n;
+        for (int b = 0; b < blocks; b++) {
+            blockStart[b] = kept[blockStart[b]];
+            blockEnd[b] = kept[blockEnd[b]];
+        }
+        size = n;
+    }
+
+    // --- inspection ---
+
+    public String name(int operand) {
+        if (operand == NONE) return "-";
+        if (isConstant(operand)) {
+            Object v = constant(operand);
+            return v instanceof String s ? "\"" + s + "\"" : v.toString();
+        }
+        return operand < variables ? valueName[operand] + "#" + operand : "t" + (operand - variables);
+    }
+
+    public void dump(PrintStream out) {
+        out.println("--- IR: " + size + " instrucoes, " + blocks + " blocos, " + variables + " variaveis, "
+                    + (values - variables) + " temporarios ---");
+        for (int i = 0; i < laidOut; i++) {
+            int b = layout[i];
+            StringBuilder line = new StringBuilder("bb").append(b).append(":");
+            line.append(" ".repeat(Math.max(1, 12 - line.length()))).append("; preds:");
+            if (predStart[b] == predStart[b + 1]) line.append(b == layout[0] ? " entrada" : " nenhum");
+            for (int p = predStart[b]; p < predStart[b + 1]; p++) {
+                line.append(" bb").append(preds[p]);
+            }
+            out.println(line);
+            for (int k = blockStart[b]; k < blockEnd[b]; k++) {
+                out.println("    " + instruction(k, b));
+            }
+        }
+    }
+
+    private String instruction(int k, int b) {
+        String name = OP_NAMES[op[k]];
+        switch (op[k]) {
+            case COPY:
+                return name(res[k]) + ":" + type(res[k]) + " = " + name(arg1[k]);
+            case READ:
+                return "read " + name(res[k]);
+            case WRITE:
+            case RETURN:
+                return name + " " + name(arg1[k]);
+            case WRITELN:
+                return name;
+            case JUMP:
+                return "jump bb" + succ0[b];
+            case BRANCH:
+                return "branch " + name(arg1[k]) + " ? bb" + succ0[b] + " : bb" + succ1[b];
+            default:
+                return name(res[k]) + ":" + type(res[k]) + " = " + name + " " + name(arg1[k]) + ", " + name(arg2[k]);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package compiladorespj;
+
+import java.util.Arrays;
+import static compiladorespj.AST.*;
+
+// Lowers a checked AST to Ir. Like the other passes it never recurses on nesting: blocks still being
+// lowered and the actions that close a compound statement (jump to the join or loop header, start the
+// next block) wait on an explicit stack, and expressions are lowered post-order from another one.
+public final class IrBuilder implements StatementVisitor<Void> {
+    private static final int BLOCK = 0, JUMP_AND_START = 1, LOOP_END = 2, FOR_END = 3;
+
+    private final Ir ir;
+    private Object[] items = new Object[16];
+    private int[] kinds = new int[16];
+    private int[] next = new int[16];
+    private int[] target = new int[16];
+    private int[] follow = new int[16];
+    private int top;
+    private int[] loopExits = new int[8];
+    private int loops;
+
+    private Expression[] nodes = new Expression[16];
+    private Type[] nodeTargets = new Type[16];
+    private boolean[] expanded = new boolean[16];
+    private int[] operands = new int[16];
+
+    private IrBuilder(SymbolTable symbols) {
+        ir = new Ir(symbols);
+    }
+
+    public static Ir lower(Program p, SymbolTable symbols) {
+        IrBuilder builder = new IrBuilder(symbols);
+        builder.ir.startBlock(builder.ir.newBlock());
+        if (p.block != null) {
+            builder.push(BLOCK, p.block, -1, -1);
+            builder.drain();
+        }
+        builder.ir.ret(builder.ir.constantOf(0));
+        builder.ir.finish();
+        return builder.ir;
+    }
+
+    private void drain() {
+        while (top > 0) {
+            int t = top - 1;
+            int jumpTo = target[t];
+            int startNext = follow[t];
+            switch (kinds[t]) {
+                case BLOCK: {
+                    Block b = (Block) items[t];
+                    int n = next[t];
+                    if (b.statements == null || n == b.statements.size()) {
+                        pop();
+                        break;
+                    }
+                    next[t] = n + 1;
+                    Statement st = b.statements.get(n);
+                    if (st != null) st.accept(this);
+                    break;
+                }
+                default:
+                    if (kinds[t] == FOR_END) visitAssignment(((ForStmt) items[t]).update);
+                    if (kinds[t] != JUMP_AND_START) loops--;
+                    pop();
+                    ir.jump(jumpTo);
+                    ir.startBlock(startNext);
+                    break;
+            }
+        }
+    }
+
+    private void push(int kind, Object item, int jumpTo, int startNext) {
+        if (kind == BLOCK && item == null) return;
+        if (top == kinds.length) {
+            int n = top * 2;
+            items = Arrays.copyOf(items, n);
+            kinds = Arrays.copyOf(kinds, n);
+            next = Arrays.copyOf(next, n);
+            target = Arrays.copyOf(target, n);
+            follow = Arrays.copyOf(follow, n);
+        }
+        items[top] = item;
+        kinds[top] = kind;
+        next[top] = 0;
+        target[top] = jumpTo;
+        follow[top++] = startNext;
+    }
+
+    private void pop() {
+        items[--top] = null;
+    }
+
+    private void enterLoop(int exit) {
+        if (loops == loopExits.length) {
+            loopExits = Arrays.copyOf(loopExits, loops * 2);
+        }
+        loopExits[loops++] = exit;
+    }
+
+    // Every value is declared once at the top of main, so a declaration without an initializer still
+    // resets its variable: one inside a loop body starts each iteration from the default again.
+    @Override
+    public Void visitVarDecl(VarDecl d) {
+        Type type = ir.valueType[d.slot];
+        if (d.init != null) {
+            lower(d.init, type, d.slot);
+        } else {
+            ir.emit(Ir.COPY, d.slot, ir.constantOf(defaultValue(type)), Ir.NONE);
+        }
+        return null;
+    }
+
+    private static Object defaultValue(Type type) {
+        return switch (type) {
+            case INTERO -> 0;
+            case DECIMALE -> 0.0;
+            case BOOLEANO -> false;
+            case TESTO -> "";
+        };
+    }
+
+    @Override
+    public Void visitAssignment(Assignment a) {
+        lower(a.expr, ir.valueType[a.slot], a.slot);
+        return null;
+    }
+
+    @Override
+    public Void visitRead(Read r) {
+        ir.emit(Ir.READ, r.slot, Ir.NONE, Ir.NONE);
+        return null;
+    }
+
+    @Override
+    public Void visitWrite(Write w) {
+        int n = w.expressions != null ? w.expressions.size() : 0;
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = lower(w.expressions.get(i), null, Ir.NONE);
+        }
+        for (int v : values) {
+            ir.emit(Ir.WRITE, Ir.NONE, v, Ir.NONE);
+        }
+        ir.emit(Ir.WRITELN, Ir.NONE, Ir.NONE, Ir.NONE);
+        return null;
+    }
+
+    // Blocks are started in source order, so the layout follows the program text: the then branch,
+    // the else branch, then the join.
+    @Override
+    public Void visitIf(IfStmt i) {
+        int condition = lower(i.cond);
+        int thenBlock = ir.newBlock();
+        int elseBlock = i.elseBlock != null ? ir.newBlock() : -1;
+        int join = ir.newBlock();
+        ir.branch(condition, thenBlock, elseBlock >= 0 ? elseBlock : join);
+        push(JUMP_AND_START, null, join, join);
+        if (elseBlock >= 0) {
+            push(BLOCK, i.elseBlock, -1, -1);
+            push(JUMP_AND_START, null, join, elseBlock);
+        }
+        push(BLOCK, i.thenBlock, -1, -1);
+        ir.startBlock(thenBlock);
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(WhileStmt w) {
+        int header = ir.newBlock();
+        int body = ir.newBlock();
+        int exit = ir.newBlock();
+        ir.jump(header);
+        ir.startBlock(header);
+        ir.branch(lower(w.cond), body, exit);
+        enterLoop(exit);
+        push(LOOP_END, null, header, exit);
+        push(BLOCK, w.block, -1, -1);
+        ir.startBlock(body);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(ForStmt f) {
+        visitAssignment(f.init);
+        int header = ir.newBlock();
+        int body = ir.newBlock();
+        int exit = ir.newBlock();
+        ir.jump(header);
+        ir.startBlock(header);
+        ir.branch(lower(f.cond), body, exit);
+        enterLoop(exit);
+        push(FOR_END, f, header, exit);
+        push(BLOCK, f.block, -1, -1);
+        ir.startBlock(body);
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(ReturnStmt r) {
+        ir.ret(lower(r.expr, null, Ir.NONE));
+        ir.startBlock(ir.newBlock());
+        return null;
+    }
+
+    @Override
+    public Void visitBreak(BreakStmt b) {
+        if (loops == 0) {
+            throw new RuntimeException("Erro Semantico: 'interrompi' usado fora de um laco.");
+        }
+        ir.jump(loopExits[loops - 1]);
+        ir.startBlock(ir.newBlock());
+        return null;
+    }
+
+    private int lower(Condition c) {
+        if (c.singleBooleanExpression != null) {
+            return lower(c.singleBooleanExpression, null, Ir.NONE);
+        }
+        Type operand = c.left.type == Type.DECIMALE || c.right.type == Type.DECIMALE ? Type.DECIMALE : null;
+        int left = lower(c.left, operand, Ir.NONE);
+        int right = lower(c.right, operand, Ir.NONE);
+        int result = ir.temp(Type.BOOLEANO);
+        ir.emit(opcode(c.op), result, left, right);
+        return result;
+    }
+
+    // Lowers root and returns the operand holding its value. With dst set, the value ends up in dst: the
+    // root operation writes there directly instead of going through a temporary, unless dst has another
+    // type, since every arithmetic instruction computes in its result's type. An intero operation
+    // stored into a decimale goes through an intero temporary and a converting COPY. An int literal read
+    // as a decimale (target DECIMALE) becomes a decimal constant, as CodeGenerator writes "2.0".
+    private int lower(Expression root, Type target, int dst) {
+        int sp = 0;
+        int done = 0;
+        nodes[sp] = root;
+        nodeTargets[sp] = target;
+        expanded[sp++] = false;
+        while (sp > 0) {
+            Expression x = nodes[sp - 1];
+            if (x instanceof BinaryExpr b && !expanded[sp - 1]) {
+                expanded[sp - 1] = true;
+                if (sp + 2 > nodes.length) {
+                    int n = nodes.length * 2;
+                    nodes = Arrays.copyOf(nodes, n);
+                    nodeTargets = Arrays.copyOf(nodeTargets, n);
+                    expanded = Arrays.copyOf(expanded, n);
+                    operands = Arrays.copyOf(operands, n);
+                }
+                Type operand = b.type == Type.DECIMALE ? Type.DECIMALE : null;
+                nodes[sp] = b.right;
+                nodeTargets[sp] = operand;
+                expanded[sp++] = false;
+                nodes[sp] = b.left;
+                nodeTargets[sp] = operand;
+                expanded[sp++] = false;
+                continue;
+            }
+            Type t = nodeTargets[--sp];
+            nodes[sp] = null;
+            if (x instanceof BinaryExpr b) {
+                int right = operands[--done];
+                int left = operands[--done];
+                int result = sp == 0 && dst != Ir.NONE && ir.valueType[dst] == b.type ? dst : ir.temp(b.type);
+                ir.emit(opcode(b.op), result, left, right);
+                operands[done++] = result;
+            } else if (x instanceof Literal l) {
+                Object v = t == Type.DECIMALE && l.value instanceof Integer i ? (Object) i.doubleValue() : l.value;
+                operands[done++] = ir.constantOf(v);
+            } else {
+                operands[done++] = ((Variable) x).slot;
+            }
+        }
+        int value = operands[0];
+        if (dst != Ir.NONE && value != dst) {
+            ir.emit(Ir.COPY, dst, value, Ir.NONE);
+            return dst;
+        }
+        return value;
+    }
+
+    private static int opcode(String op) {
+        return switch (op) {
+            case "piu" -> Ir.ADD;
+            case "meno" -> Ir.SUB;
+            case "moltiplica" -> Ir.MUL;
+            case "diviso" -> Ir.DIV;
+            case "%" -> Ir.MOD;
+            case "uguale" -> Ir.EQ;
+            case "diverso" -> Ir.NE;
+            case "minore" -> Ir.LT;
+            case "maggiore" -> Ir.GT;
+            case "minoreuguale" -> Ir.LE;
+            case "maggioreuguale" -> Ir.GE;
+            default -> throw new RuntimeException("IrBuilder: Operador desconhecido: '" + op + "'");
+        };
+    }
+}
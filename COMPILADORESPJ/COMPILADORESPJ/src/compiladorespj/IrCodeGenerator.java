@@ -0,0 +1,303 @@
+package compiladorespj;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes C++ from Ir instead of from the AST: every value still in use is declared once at the top of
+// main, each block becomes a run of statements, and control flow becomes goto. Blocks are emitted in
+// layout order, so a jump to the next block is left implicit and only blocks reached by a goto get a label.
+// Consecutive writes share one cout statement; in fast I/O mode that includes whole lines, up to
+// CodeGenerator.MAX_WRITE_CHAIN of them, and the computations between them move out of the way first.
+// testo constants come from CodeGenerator's pool in front of main, and a concatenation reuses the
+// buffer of its result, or takes over that of a temporary read nowhere else, instead of making a new
+// string at every +.
+public final class IrCodeGenerator {
+    private static final int FLUSH_THRESHOLD = 8192;
+    private static final String[] CPP_OPS = {"", " + ", " - ", " * ", " / ", " % ", " == ", " != ", " < ", " > ", " <= ", " >= "};
+
+    private final Ir ir;
+    private final String[] names;
+    private final boolean fastIo;
+    private final int[] uses;
+    private final int[] textOf;
+    private final List<String> texts = new ArrayList<>();
+    private StringBuilder sb;
+    private Writer out;
+    private long written;
+    private int lines;
+    private int[] order = new int[16];
+    private int orderSize;
+    private int at;
+    private int[] run = new int[16];
+    private int[] readByRun;
+    private int runId;
+
+    public IrCodeGenerator(Ir ir) {
+        this(ir, false);
+    }
+
+    public IrCodeGenerator(Ir ir, boolean fastIo) {
+        this.ir = ir;
+        this.names = names(ir);
+        this.fastIo = fastIo;
+        uses = new int[ir.values];
+        for (int k = 0; k < ir.size; k++) {
+            if (ir.arg1[k] >= 0) uses[ir.arg1[k]]++;
+            if (ir.arg2[k] >= 0) uses[ir.arg2[k]]++;
+        }
+        textOf = new int[ir.constantCount];
+        for (int k = 0; k < ir.constantCount; k++) {
+            if (ir.constants[k] instanceof String s) {
+                textOf[k] = texts.size();
+                texts.add(s);
+            }
+        }
+    }
+
+    public String generate() {
+        sb = new StringBuilder(ir.size() * 24);
+        try {
+            emit();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    public long generate(Writer out) throws IOException {
+        this.out = out;
+        sb = new StringBuilder(FLUSH_THRESHOLD + 1024);
+        written = 0;
+        try {
+            emit();
+            flush();
+        } finally {
+            this.out = null;
+        }
+        return written;
+    }
+
+    // Variables keep their source name unless two slots share it (same name in sibling scopes);
+    // those, and temporaries, get names starting with '_', which no source identifier can.
+    private static String[] names(Ir ir) {
+        String[] names = new String[ir.values];
+        java.util.HashMap<String, Integer> seen = new java.util.HashMap<>();
+        for (int v = 0; v < ir.variables; v++) {
+            seen.merge(ir.valueName[v], 1, Integer::sum);
+        }
+        for (int v = 0; v < ir.values; v++) {
+            if (v >= ir.variables) {
+                names[v] = "_t" + (v - ir.variables);
+            } else if (seen.get(ir.valueName[v]) > 1) {
+                names[v] = "_" + ir.valueName[v] + "_" + v;
+            } else {
+                names[v] = ir.valueName[v];
+            }
+        }
+        return names;
+    }
+
+    private void emit() throws IOException {
+        CodeGenerator.appendPrelude(sb, fastIo, texts);
+        boolean[] used = new boolean[ir.values];
+        for (int k = 0; k < ir.size; k++) {
+            if (ir.res[k] >= 0) used[ir.res[k]] = true;
+            if (ir.arg1[k] >= 0) used[ir.arg1[k]] = true;
+            if (ir.arg2[k] >= 0) used[ir.arg2[k]] = true;
+        }
+        for (int v = 0; v < ir.values; v++) {
+            if (!used[v]) continue;
+            sb.append("    ").append(CodeGenerator.mapType(ir.valueType[v].keyword())).append(' ').append(names[v]).append(";\n");
+        }
+        int[] position = new int[ir.blocks];
+        for (int i = 0; i < ir.laidOut; i++) {
+            position[ir.layout[i]] = i;
+        }
+        boolean[] labelled = labelled(position);
+        readByRun = new int[ir.values];
+        for (int i = 0; i < ir.laidOut; i++) {
+            int b = ir.layout[i];
+            if (labelled[b]) sb.append("bb").append(b).append(":\n");
+            order(b);
+            for (at = 0; at < orderSize; at++) {
+                instruction(order[at], b, i);
+            }
+            if (out != null && sb.length() >= FLUSH_THRESHOLD) flush();
+        }
+        sb.append("}\n");
+    }
+
+    // The block's instructions in the order they are written. In fast I/O mode a computation that
+    // cannot trap moves ahead of the writes just before it, unless one of them prints its result, so
+    // that the writes of consecutive scrivi meet in one cout statement.
+    private void order(int b) {
+        int start = ir.blockStart[b];
+        int end = ir.blockEnd[b];
+        if (order.length < end - start) {
+            order = new int[end - start];
+            run = new int[end - start];
+        }
+        orderSize = 0;
+        int runSize = 0;
+        runId++;
+        for (int k = start; k < end; k++) {
+            int op = ir.op[k];
+            if (fastIo && (op == Ir.WRITE || op == Ir.WRITELN)) {
+                run[runSize++] = k;
+                if (ir.arg1[k] >= 0) readByRun[ir.arg1[k]] = runId;
+            } else if (runSize > 0 && op <= Ir.GE && op != Ir.DIV && op != Ir.MOD && readByRun[ir.res[k]] != runId) {
+                order[orderSize++] = k;
+            } else {
+                System.arraycopy(run, 0, order, orderSize, runSize);
+                orderSize += runSize;
+                runSize = 0;
+                runId++;
+                order[orderSize++] = k;
+            }
+        }
+        System.arraycopy(run, 0, order, orderSize, runSize);
+        orderSize += runSize;
+    }
+
+    private boolean[] labelled(int[] position) {
+        boolean[] labelled = new boolean[ir.blocks];
+        for (int i = 0; i < ir.laidOut; i++) {
+            int b = ir.layout[i];
+            int last = ir.op[ir.blockEnd[b] - 1];
+            if (last == Ir.JUMP && position[ir.succ0[b]] != i + 1) {
+                labelled[ir.succ0[b]] = true;
+            } else if (last == Ir.BRANCH) {
+                if (position[ir.succ1[b]] != i + 1) labelled[ir.succ1[b]] = true;
+                if (position[ir.succ0[b]] != i + 1) labelled[ir.succ0[b]] = true;
+            }
+        }
+        return labelled;
+    }
+
+    private void instruction(int k, int b, int position) {
+        int op = ir.op[k];
+        switch (op) {
+            case Ir.COPY:
+                if (ir.type(ir.res[k]) == Type.TESTO && isLastRead(ir.arg1[k]) && ir.arg1[k] != ir.res[k]) {
+                    sb.append("    ").append(names[ir.res[k]]).append(".swap(").append(names[ir.arg1[k]]).append(");\n");
+                    break;
+                }
+                sb.append("    ").append(names[ir.res[k]]).append(" = ");
+                operand(ir.arg1[k]).append(";\n");
+                break;
+            case Ir.READ:
+                sb.append("    cin >> ").append(names[ir.res[k]]).append(";\n");
+                break;
+            case Ir.WRITE:
+                startWrite();
+                sb.append(" << ");
+                operand(ir.arg1[k]);
+                break;
+            case Ir.WRITELN:
+                startWrite();
+                if (!fastIo) {
+                    sb.append(" << endl;\n");
+                    break;
+                }
+                sb.append(" << '\\n'");
+                lines++;
+                if (!continuesWrite(at + 1)) sb.append(";\n");
+                break;
+            case Ir.JUMP:
+                if (!isNext(ir.succ0[b], position)) sb.append("    goto bb").append(ir.succ0[b]).append(";\n");
+                break;
+            case Ir.BRANCH: {
+                int ifTrue = ir.succ0[b];
+                int ifFalse = ir.succ1[b];
+                if (isNext(ifFalse, position)) {
+                    sb.append("    if (");
+                    operand(ir.arg1[k]).append(") goto bb").append(ifTrue).append(";\n");
+                } else if (isNext(ifTrue, position)) {
+                    sb.append("    if (!");
+                    operand(ir.arg1[k]).append(") goto bb").append(ifFalse).append(";\n");
+                } else {
+                    sb.append("    if (");
+                    operand(ir.arg1[k]).append(") goto bb").append(ifTrue).append(";\n");
+                    sb.append("    goto bb").append(ifFalse).append(";\n");
+                }
+                break;
+            }
+            case Ir.RETURN:
+                sb.append("    return ");
+                operand(ir.arg1[k]).append(";\n");
+                break;
+            default: {
+                int left = ir.arg1[k];
+                int right = ir.arg2[k];
+                if (op == Ir.ADD && ir.type(left) == Type.TESTO && ir.res[k] != right) {
+                    concat(ir.res[k], left, right);
+                    break;
+                }
+                sb.append("    ").append(names[ir.res[k]]).append(" = ");
+                operand(left);
+                sb.append(CPP_OPS[op]);
+                operand(right).append(";\n");
+                break;
+            }
+        }
+    }
+
+    // res = left + right on testo. The left operand's string is extended in place when it is res or
+    // a temporary with no other reader; otherwise res is refilled within its own capacity.
+    private void concat(int res, int left, int right) {
+        String name = names[res];
+        if (left == res) {
+            sb.append("    ").append(name).append(".append(");
+            operand(right).append(");\n");
+            return;
+        }
+        if (isLastRead(left) && left != right) {
+            sb.append("    ").append(name).append(".swap(").append(names[left]).append(");\n");
+        } else {
+            sb.append("    ").append(name).append(".clear();\n");
+            sb.append("    ").append(name).append(".reserve(");
+            operand(left).append(".size() + ");
+            operand(right).append(".size());\n");
+            sb.append("    ").append(name).append(".append(");
+            operand(left).append(");\n");
+        }
+        sb.append("    ").append(name).append(".append(");
+        operand(right).append(");\n");
+    }
+
+    // A temporary read once is dead after that read, so its string can be handed over.
+    private boolean isLastRead(int operand) {
+        return operand >= ir.variables && uses[operand] == 1;
+    }
+
+    private void startWrite() {
+        if (continuesWrite(at)) return;
+        sb.append("    cout");
+        lines = 0;
+    }
+
+    // Whether the write at order[p] goes on the cout statement left open by the instruction before it.
+    private boolean continuesWrite(int p) {
+        if (p == 0 || p == orderSize || ir.op[order[p]] != Ir.WRITE && ir.op[order[p]] != Ir.WRITELN) return false;
+        int previous = ir.op[order[p - 1]];
+        return previous == Ir.WRITE || fastIo && previous == Ir.WRITELN && lines < CodeGenerator.MAX_WRITE_CHAIN;
+    }
+
+    private boolean isNext(int block, int position) {
+        return position + 1 < ir.laidOut && ir.layout[position + 1] == block;
+    }
+
+    private StringBuilder operand(int operand) {
+        if (!Ir.isConstant(operand)) return sb.append(names[operand]);
+        Object value = ir.constant(operand);
+        return value instanceof String ? sb.append(CodeGenerator.textName(textOf[-1 - operand])) : CodeGenerator.appendLiteral(sb, value);
+    }
+
+    private void flush() throws IOException {
+        out.append(sb);
+        written += sb.length();
+        sb.setLength(0);
+    }
+}
@@ -0,0 +1,264 @@
+package compiladorespj;
+
+import java.util.Arrays;
+
+// Dataflow optimizations on Ir, run at -O2. Copy propagation (available copies, a forward problem
+// met by intersection) replaces reads of x after x = y with y, as long as neither has been written
+// since; dead-store elimination (liveness, backward and met by union) drops computations whose
+// result is never read. Each feeds the other, so they alternate until neither changes anything.
+//
+// Only global values, those read in some block before that block writes them, get a liveness bit, and
+// only copies into them that survive to the end of their block get an availability bit: anything else
+// never crosses a block boundary and is tracked while walking a single block. Should the sets still
+// outgrow MAX_SET_WORDS, the pass falls back to that per-block tracking alone rather than go quadratic.
+public final class IrOptimizer {
+    private static final int MAX_ROUNDS = 8;
+    private static final long MAX_SET_WORDS = 1L << 20;
+
+    private final Ir ir;
+    private int changes;
+    private int[] bit;
+    private int globals;
+    private int[] stamp;
+    private boolean allLive;
+
+    public IrOptimizer(Ir ir) {
+        this.ir = ir;
+    }
+
+    public int changes() {
+        return changes;
+    }
+
+    public void optimize() {
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            int before = changes;
+            propagateCopies();
+            eliminateDeadStores();
+            if (changes == before) break;
+        }
+    }
+
+    private void findGlobals() {
+        bit = new int[ir.values];
+        Arrays.fill(bit, -1);
+        int[] writtenIn = new int[ir.values];
+        boolean[] exposed = new boolean[ir.values];
+        for (int b = 0; b < ir.blocks; b++) {
+            for (int k = ir.blockStart[b]; k < ir.blockEnd[b]; k++) {
+                if (ir.arg1[k] >= 0 && writtenIn[ir.arg1[k]] != b + 1) exposed[ir.arg1[k]] = true;
+                if (ir.arg2[k] >= 0 && writtenIn[ir.arg2[k]] != b + 1) exposed[ir.arg2[k]] = true;
+                if (ir.res[k] >= 0) writtenIn[ir.res[k]] = b + 1;
+            }
+        }
+        globals = 0;
+        for (int v = 0; v < ir.values; v++) {
+            if (exposed[v]) bit[v] = globals++;
+        }
+    }
+
+    // Only copies between values of the same type are propagated: d = i with d decimale and i intero
+    // is a conversion, and i in place of d would turn d diviso 2 into an integer division.
+    private void propagateCopies() {
+        findGlobals();
+        int[] copyOf = new int[ir.size];
+        int copies = 0;
+        for (int k = 0; k < ir.size; k++) {
+            copyOf[k] = -1;
+            if (ir.op[k] == Ir.COPY && ir.res[k] != ir.arg1[k] && ir.type(ir.res[k]) == ir.type(ir.arg1[k])) {
+                copyOf[k] = copies++;
+            }
+        }
+        if (copies == 0) return;
+        int[] dst = new int[copies];
+        int[] src = new int[copies];
+        for (int k = 0; k < ir.size; k++) {
+            int c = copyOf[k];
+            if (c < 0) continue;
+            dst[c] = ir.res[k];
+            src[c] = ir.arg1[k];
+        }
+
+        // A copy gets a bit when it is into a global value and still holds at the end of its block.
+        int[] copyBit = new int[copies];
+        int bits = 0;
+        int[] mark = new int[ir.values];
+        for (int b = 0; b < ir.blocks; b++) {
+            for (int k = ir.blockEnd[b] - 1; k >= ir.blockStart[b]; k--) {
+                int c = copyOf[k];
+                if (c >= 0) {
+                    boolean reachesEnd = mark[dst[c]] != b + 1 && (src[c] < 0 || mark[src[c]] != b + 1);
+                    copyBit[c] = reachesEnd && bit[dst[c]] >= 0 ? bits++ : -1;
+                }
+                if (ir.res[k] >= 0) mark[ir.res[k]] = b + 1;
+            }
+        }
+        if ((long) Dataflow.words(bits) * ir.blocks > MAX_SET_WORDS) {
+            Arrays.fill(copyBit, -1);
+            bits = 0;
+        }
+        int[] bitCopy = new int[bits];
+        for (int c = 0; c < copies; c++) {
+            if (copyBit[c] >= 0) bitCopy[copyBit[c]] = c;
+        }
+        long[] in = bits > 0 ? availableCopies(bits, bitCopy, dst, src, copyOf, copyBit, mark) : null;
+
+        // Walk each block with at most one copy available into each value: avail[v] is the copy, valid
+        // while availIn[v] is the block's mark and the copy's source has not been written since
+        // (written[src] still equals seen[c]).
+        int words = Dataflow.words(bits);
+        int[] avail = new int[ir.values];
+        int[] availIn = new int[ir.values];
+        int[] written = new int[ir.values];
+        int[] seen = new int[copies];
+        for (int b = 0; b < ir.blocks; b++) {
+            for (int w = 0; w < words; w++) {
+                for (long set = in[b * words + w]; set != 0; set &= set - 1) {
+                    int c = bitCopy[(w << 6) + Long.numberOfTrailingZeros(set)];
+                    make(c, b, dst, src, avail, availIn, written, seen);
+                }
+            }
+            for (int k = ir.blockStart[b]; k < ir.blockEnd[b]; k++) {
+                ir.arg1[k] = replace(ir.arg1[k], b, src, avail, availIn, written, seen);
+                ir.arg2[k] = replace(ir.arg2[k], b, src, avail, availIn, written, seen);
+                int v = ir.res[k];
+                if (v < 0) continue;
+                written[v]++;
+                availIn[v] = 0;
+                if (copyOf[k] >= 0) make(copyOf[k], b, dst, src, avail, availIn, written, seen);
+            }
+        }
+    }
+
+    private static void make(int c, int b, int[] dst, int[] src, int[] avail, int[] availIn, int[] written, int[] seen) {
+        avail[dst[c]] = c;
+        availIn[dst[c]] = b + 1;
+        seen[c] = src[c] >= 0 ? written[src[c]] : 0;
+    }
+
+    private int replace(int operand, int b, int[] src, int[] avail, int[] availIn, int[] written, int[] seen) {
+        if (operand < 0 || availIn[operand] != b + 1) return operand;
+        int c = avail[operand];
+        if (src[c] >= 0 && written[src[c]] != seen[c]) return operand;
+        changes++;
+        return src[c];
+    }
+
+    // The in-sets of the available-copies problem. A block kills every copy into or out of a value it
+    // writes, and generates its own copies that have a bit.
+    private long[] availableCopies(int bits, int[] bitCopy, int[] dst, int[] src, int[] copyOf, int[] copyBit, int[] mark) {
+        // touching[touchStart[v] .. touchStart[v + 1]) are the copies with a bit that a write to v kills.
+        int[] touchStart = new int[ir.values + 1];
+        for (int c : bitCopy) {
+            touchStart[dst[c] + 1]++;
+            if (src[c] >= 0) touchStart[src[c] + 1]++;
+        }
+        for (int v = 0; v < ir.values; v++) {
+            touchStart[v + 1] += touchStart[v];
+        }
+        int[] touching = new int[touchStart[ir.values]];
+        int[] fill = Arrays.copyOf(touchStart, ir.values);
+        for (int cb = 0; cb < bits; cb++) {
+            int c = bitCopy[cb];
+            touching[fill[dst[c]]++] = cb;
+            if (src[c] >= 0) touching[fill[src[c]]++] = cb;
+        }
+
+        int words = Dataflow.words(bits);
+        long[] gen = new long[ir.blocks * words];
+        long[] kill = new long[ir.blocks * words];
+        Arrays.fill(mark, 0);
+        for (int b = 0; b < ir.blocks; b++) {
+            int base = b * words;
+            for (int k = ir.blockStart[b]; k < ir.blockEnd[b]; k++) {
+                int v = ir.res[k];
+                if (v < 0) continue;
+                if (copyOf[k] >= 0 && copyBit[copyOf[k]] >= 0) Dataflow.set(gen, base, copyBit[copyOf[k]]);
+                if (mark[v] == b + 1) continue;
+                mark[v] = b + 1;
+                for (int t = touchStart[v]; t < touchStart[v + 1]; t++) {
+                    Dataflow.set(kill, base, touching[t]);
+                }
+            }
+        }
+        return Dataflow.solve(ir, bits, gen, kill, true, true).in;
+    }
+
+    // READ stays even when its value is dead, since it still consumes input, and so does an intero
+    // division that may trap, whose error the -O1 Optimizer keeps as well; a self-copy left behind by
+    // propagation is dropped whether or not its value is live. Values without a bit are live from
+    // their last read back to their write in the same block, tracked in stamp.
+    private void eliminateDeadStores() {
+        findGlobals();
+        allLive = (long) Dataflow.words(globals) * ir.blocks > MAX_SET_WORDS;
+        int words = allLive ? 0 : Dataflow.words(globals);
+        Dataflow liveness = allLive ? null : liveness(words);
+
+        boolean[] removed = new boolean[ir.size];
+        int dead = 0;
+        stamp = new int[ir.values];
+        long[] live = new long[words];
+        for (int b = 0; b < ir.blocks; b++) {
+            if (!allLive) System.arraycopy(liveness.out, b * words, live, 0, words);
+            for (int k = ir.blockEnd[b] - 1; k >= ir.blockStart[b]; k--) {
+                int op = ir.op[k];
+                int v = ir.res[k];
+                boolean pure = op <= Ir.GE && !traps(k);
+                if (pure && (!isLive(v, b, live) || op == Ir.COPY && ir.arg1[k] == v)) {
+                    removed[k] = true;
+                    dead++;
+                    continue;
+                }
+                if (v >= 0) setLive(v, b, live, false);
+                if (ir.arg1[k] >= 0) setLive(ir.arg1[k], b, live, true);
+                if (ir.arg2[k] >= 0) setLive(ir.arg2[k], b, live, true);
+            }
+        }
+        if (dead > 0) {
+            ir.compact(removed);
+            changes += dead;
+        }
+    }
+
+    // intero diviso and % fail on a zero divisor and on Integer.MIN_VALUE by -1; a constant divisor
+    // other than those never does.
+    private boolean traps(int k) {
+        int op = ir.op[k];
+        int divisor = ir.arg2[k];
+        return (op == Ir.DIV || op == Ir.MOD) && ir.type(ir.arg1[k]) == Type.INTERO && ir.type(divisor) == Type.INTERO
+               && !(Ir.isConstant(divisor) && ir.constant(divisor) instanceof Integer d && d != 0 && d != -1);
+    }
+
+    private Dataflow liveness(int words) {
+        long[] gen = new long[ir.blocks * words];
+        long[] kill = new long[ir.blocks * words];
+        for (int b = 0; b < ir.blocks; b++) {
+            int base = b * words;
+            for (int k = ir.blockEnd[b] - 1; k >= ir.blockStart[b]; k--) {
+                int v = ir.res[k];
+                if (v >= 0 && bit[v] >= 0) {
+                    Dataflow.set(kill, base, bit[v]);
+                    Dataflow.clear(gen, base, bit[v]);
+                }
+                if (ir.arg1[k] >= 0 && bit[ir.arg1[k]] >= 0) Dataflow.set(gen, base, bit[ir.arg1[k]]);
+                if (ir.arg2[k] >= 0 && bit[ir.arg2[k]] >= 0) Dataflow.set(gen, base, bit[ir.arg2[k]]);
+            }
+        }
+        return Dataflow.solve(ir, globals, gen, kill, false, false);
+    }
+
+    private boolean isLive(int v, int b, long[] live) {
+        if (bit[v] >= 0) return allLive || Dataflow.get(live, 0, bit[v]);
+        return stamp[v] == b + 1;
+    }
+
+    private void setLive(int v, int b, long[] live, boolean isLive) {
+        if (bit[v] >= 0) {
+            if (allLive) return;
+            if (isLive) Dataflow.set(live, 0, bit[v]);
+            else Dataflow.clear(live, 0, bit[v]);
+        } else {
+            stamp[v] = isLive ? b + 1 : 0;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package compiladorespj;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// A program compiled by ClassGenerator and defined as a hidden class next to this one, so HotSpot
+// JIT-compiles the user's loops like any other Java code. A program whose method would be too large
+// for the JIT (ClassGenerator.MAX_CODE) runs on VirtualMachine instead.
+public final class JvmProgram {
+    private final MethodHandle main;
+    private final VirtualMachine fallback;
+    private final int classBytes;
+
+    private JvmProgram(MethodHandle main, VirtualMachine fallback, int classBytes) {
+        this.main = main;
+        this.fallback = fallback;
+        this.classBytes = classBytes;
+    }
+
+    public static JvmProgram load(Ir ir) {
+        byte[] classFile = ClassGenerator.generate(ir);
+        if (classFile == null) {
+            return new JvmProgram(null, new VirtualMachine(Bytecode.assemble(ir)), 0);
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            MethodHandle main = lookup.findStatic(lookup.lookupClass(), "run", MethodType.methodType(int.class, Console.class));
+            return new JvmProgram(main, null, classFile.length);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Classe gerada invalida: " + e.getMessage(), e);
+        }
+    }
+
+    // Whether the program runs as JVM bytecode rather than on the VirtualMachine fallback.
+    public boolean compiled() {
+        return main != null;
+    }
+
+    // Size of the generated class file, 0 for a fallback.
+    public int classBytes() {
+        return classBytes;
+    }
+
+    // Returns the program's exit status, the value of ritorna or 0.
+    public int run(Reader in, Writer out) throws IOException {
+        if (main == null) return fallback.run(in, out);
+        Console console = new Console(in, out);
+        try {
+            return (int) main.invokeExact(console);
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Erro de Execucao: divisao inteira por zero.");
+        } catch (IOException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        } finally {
+            console.flush();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package compiladorespj;
+
+final class KeywordTable {
+    private static final String FINE = "fine";
+
+    private static final int BITS = 6;
+    private static final String[] WORDS = new String[1 << BITS];
+    private static final int[] KINDS = new int[1 << BITS];
+    private static final int MULTIPLIER;
+
+    static {
+        int m = 0x9E384783;
+        while (!fill(m)) {
+            m += 2;
+        }
+        MULTIPLIER = m;
+    }
+
+    private KeywordTable() { }
+
+    private static boolean fill(int m) {
+        java.util.Arrays.fill(WORDS, null);
+        for (int kind = TokenKind.PROGRAMMA; kind < TokenKind.PONTO; kind++) {
+            String w = TokenKind.lexeme(kind);
+            if (!Character.isLetter(w.charAt(0))) continue;
+            int h = 0;
+            for (int i = 0; i < w.length(); i++) {
+                h = hash(h, w.charAt(i));
+            }
+            int s = (h * m) >>> (32 - BITS);
+            if (WORDS[s] != null) return false;
+            WORDS[s] = w;
+            KINDS[s] = kind;
+        }
+        return true;
+    }
+
+    static int hash(int h, char c) {
+        return 31 * h + c;
+    }
+
+    static int find(int h, char[] buf, int off, int len) {
+        int s = (h * MULTIPLIER) >>> (32 - BITS);
+        String w = WORDS[s];
+        if (w == null || w.length() != len) return -1;
+        for (int i = 0; i < len; i++) {
+            if (w.charAt(i) != buf[off + i]) return -1;
+        }
+        return KINDS[s];
+    }
+
+    static int findFine(int h, char[] buf, int off, int len) {
+        int s = (h * MULTIPLIER) >>> (32 - BITS);
+        String w = WORDS[s];
+        int n = FINE.length();
+        if (w == null || w.length() != n + len || !w.startsWith(FINE)) return -1;
+        for (int i = 0; i < len; i++) {
+            if (w.charAt(n + i) != buf[off + i]) return -1;
+        }
+        return KINDS[s];
+    }
+
+    static boolean isFine(char[] buf, int off, int len) {
+        if (len != FINE.length()) return false;
+        for (int i = 0; i < len; i++) {
+            if (FINE.charAt(i) != buf[off + i]) return false;
+        }
+        return true;
+    }
+}
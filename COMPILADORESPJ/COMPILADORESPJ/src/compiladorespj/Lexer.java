@@ -1,58 +1,412 @@
 package compiladorespj;
 
-import java.text.CharacterIterator;
-import java.text.StringCharacterIterator;
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class Lexer {
-    private final List<AFD> afds = List.of(
-        new MathOperator(),
-        new KeywordRecognizer(),
-        new IdentifierRecognizer(),
-        new NumberRecognizer(),
-        new StringRecognizer(),
-        new SymbolRecognizer()
-    );
-    
-    private final CharacterIterator code;
-    private final List<Token> tokens = new ArrayList<>();
+    private static final int C_OTHER = 0, C_SPACE = 1, C_LETTER = 2, C_DIGIT = 3, C_UNDERSCORE = 4,
+                             C_QUOTE = 5, C_SYMBOL = 6, C_COMMA = 7, C_PERCENT = 8, C_EOF = 9;
+    private static final int CLASSES = 10;
+
+    private static final int S_STOP = 0, S_LETTERS = 1, S_IDENT = 2, S_INT = 3, S_COMMA = 4, S_DEC = 5;
+
+    private static final byte[] ASCII = new byte[128];
+    private static final byte[][] NEXT = new byte[6][CLASSES];
+    private static final byte[] SYMBOL_KIND = new byte[128];
+
+    private static final int WINDOW = 8192;
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            ASCII[c] = (byte) classify(c);
+        }
+        ASCII['_'] = C_UNDERSCORE;
+        ASCII['"'] = C_QUOTE;
+        ASCII['.'] = C_SYMBOL;
+        ASCII['('] = C_SYMBOL;
+        ASCII[')'] = C_SYMBOL;
+        ASCII[':'] = C_SYMBOL;
+        ASCII[','] = C_COMMA;
+        ASCII['%'] = C_PERCENT;
+
+        SYMBOL_KIND['.'] = TokenKind.PONTO;
+        SYMBOL_KIND['('] = TokenKind.ABRE_PAR;
+        SYMBOL_KIND[')'] = TokenKind.FECHA_PAR;
+        SYMBOL_KIND[','] = TokenKind.VIRGULA;
+        SYMBOL_KIND[':'] = TokenKind.DOIS_PONTOS;
+
+        NEXT[S_LETTERS][C_LETTER] = S_LETTERS;
+        NEXT[S_LETTERS][C_DIGIT] = S_IDENT;
+        NEXT[S_LETTERS][C_UNDERSCORE] = S_IDENT;
+        NEXT[S_IDENT][C_LETTER] = S_IDENT;
+        NEXT[S_IDENT][C_DIGIT] = S_IDENT;
+        NEXT[S_IDENT][C_UNDERSCORE] = S_IDENT;
+        NEXT[S_INT][C_DIGIT] = S_INT;
+        NEXT[S_INT][C_COMMA] = S_COMMA;
+        NEXT[S_COMMA][C_DIGIT] = S_DEC;
+        NEXT[S_DEC][C_DIGIT] = S_DEC;
+    }
+
+    private static int classify(char c) {
+        if (Character.isWhitespace(c)) return C_SPACE;
+        if (Character.isLetter(c)) return C_LETTER;
+        if (Character.isDigit(c)) return C_DIGIT;
+        return C_OTHER;
+    }
+
+    private final String text;
+    private final Reader reader;
+    private final ByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private final SymbolPool symbols = new SymbolPool();
+
+    private char[] buf = new char[WINDOW];
+    private int base = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    private int mark = 0;
+    private int pos = 0;
+    private int linesBeforeBase = 1;
+
+    private TokenBuffer tokens;
+    private int kind;
+    private int start;
+    private String lexeme;
 
     public Lexer(String input) {
-        this.code = new StringCharacterIterator(input);
+        this(input, null, null);
+    }
+
+    public Lexer(Reader reader) {
+        this(null, reader, null);
     }
 
-    private void skipWS() {
-        while (code.current() != CharacterIterator.DONE && Character.isWhitespace(code.current())) {
-            code.next();
+    public Lexer(ByteBuffer utf8) {
+        this(null, null, utf8);
+    }
+
+    private Lexer(String text, Reader reader, ByteBuffer bytes) {
+        this.text = text;
+        this.reader = reader;
+        this.bytes = bytes;
+        this.decoder = bytes == null ? null : StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    public Lexer(ReadableByteChannel channel) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8));
+    }
+
+    public TokenBuffer tokenize() {
+        if (text == null) {
+            throw new IllegalStateException("tokenize() exige a entrada completa em memoria; use stream() para leitura incremental.");
         }
+        tokens = new TokenBuffer(text, symbols);
+        while (next()) { }
+        return tokens;
     }
 
-    public List<Token> tokenize() {
-        while (code.current() != CharacterIterator.DONE) {
-            skipWS();
-            
-            if (code.current() == CharacterIterator.DONE) break;
-            
-            boolean matched = false;
-            for (AFD afd : afds) {
-                Token t = afd.evaluate(code);
-                
-                if (t != null) {
-                    tokens.add(t);
-                    matched = true;
-                    break;
+    public TokenCursor stream() {
+        return new Stream();
+    }
+
+    private int read(char[] dst, int off, int len) {
+        if (text != null) {
+            int from = base + limit;
+            int n = Math.min(len, text.length() - from);
+            if (n <= 0) return -1;
+            text.getChars(from, from + n, dst, off);
+            return n;
+        }
+        if (bytes != null) {
+            return decode(dst, off, len);
+        }
+        try {
+            return reader.read(dst, off, len);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro Lexico: falha ao ler a entrada", e);
+        }
+    }
+
+    private int decode(char[] dst, int off, int len) {
+        int p = bytes.position();
+        int lim = bytes.limit();
+        if (p == lim) return -1;
+        int n = 0;
+        while (n < len && p < lim) {
+            byte b = bytes.get(p);
+            if (b < 0) break;
+            dst[off + n++] = (char) b;
+            p++;
+        }
+        bytes.position(p);
+        if (n > 0 || p == lim) return n;
+
+        int run = p;
+        while (run < lim && bytes.get(run) < 0) {
+            run++;
+        }
+        bytes.limit(run);
+        CharBuffer out = CharBuffer.wrap(dst, off, len);
+        CoderResult r = decoder.reset().decode(bytes, out, true);
+        bytes.limit(lim);
+        if (r.isError()) {
+            try {
+                r.throwException();
+            } catch (CharacterCodingException e) {
+                throw new RuntimeException("Erro Lexico: sequencia UTF-8 invalida no byte " + bytes.position(), e);
+            }
+        }
+        return out.position() - off;
+    }
+
+    private boolean fill(int i) {
+        while (i >= limit) {
+            if (eof) return false;
+            if (buf.length - limit < 2) {
+                int keep = mark - base;
+                for (int k = 0; k < keep; k++) {
+                    if (buf[k] == '\n') linesBeforeBase++;
+                }
+                System.arraycopy(buf, keep, buf, 0, limit - keep);
+                limit -= keep;
+                base = mark;
+                i -= keep;
+                if (limit > buf.length / 2) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
                 }
             }
-            
-            if (!matched) {
+            int n = read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            limit += n;
+        }
+        return true;
+    }
+
+    private int at(int p) {
+        int i = p - base;
+        if (i >= limit && !fill(i)) return -1;
+        return buf[p - base];
+    }
+
+    private int classAt(int p) {
+        int c = at(p);
+        if (c < 0) return C_EOF;
+        return c < 128 ? ASCII[c] : classify((char) c);
+    }
+
+    private char charAt(int p) {
+        return buf[p - base];
+    }
+
+    private void emit(int kind, int start, int end, int value) {
+        if (tokens != null) {
+            tokens.add(kind, start, end, value);
+            return;
+        }
+        this.kind = kind;
+        this.start = start;
+        switch (kind) {
+            case TokenKind.ID:
+                lexeme = symbols.name(value);
+                break;
+            case TokenKind.STRING:
+                lexeme = new String(buf, start + 1 - base, end - start - 2);
+                break;
+            case TokenKind.NUM_INT:
+            case TokenKind.NUM_DEC:
+                lexeme = new String(buf, start - base, end - start);
+                break;
+            default:
+                lexeme = TokenKind.lexeme(kind);
+                break;
+        }
+    }
+
+    private boolean next() {
+        int p = pos;
+        int cls;
+        while (true) {
+            mark = p;
+            cls = classAt(p);
+            if (cls != C_SPACE) break;
+            p++;
+        }
+        switch (cls) {
+            case C_EOF:
+                emit(TokenKind.EOF, p, p, 0);
+                pos = p;
+                return false;
+            case C_LETTER:
+                p = scanWord(p);
+                break;
+            case C_DIGIT:
+                p = scanNumber(p);
+                break;
+            case C_QUOTE:
+                p = scanString(p);
+                break;
+            case C_SYMBOL:
+            case C_COMMA:
+                emit(SYMBOL_KIND[charAt(p)], p, p + 1, 0);
+                p++;
+                break;
+            case C_PERCENT:
+                emit(TokenKind.MODULO, p, p + 1, 0);
+                p++;
+                break;
+            default:
                 throw new RuntimeException(
-                  "Erro Lexico: Simbolo '" + code.current() +
-                  "' nao reconhecido na posicao " + code.getIndex()
+                  "Erro Lexico: Simbolo '" + charAt(p) +
+                  "' nao reconhecido na posicao " + p
                 );
+        }
+        pos = p;
+        return true;
+    }
+
+    private int scanWord(int start) {
+        int h = KeywordTable.hash(0, charAt(start));
+        int hIdent = h;
+        int lettersEnd = -1;
+        int state = S_LETTERS;
+        int p = start + 1;
+        while (true) {
+            int next = NEXT[state][classAt(p)];
+            if (next == S_STOP) break;
+            char c = charAt(p);
+            hIdent = KeywordTable.hash(hIdent, c);
+            if (state == S_LETTERS) {
+                if (next == S_LETTERS) {
+                    h = KeywordTable.hash(h, c);
+                } else {
+                    lettersEnd = p;
+                }
+            }
+            state = next;
+            p++;
+        }
+        if (lettersEnd < 0) lettersEnd = p;
+
+        int kind = KeywordTable.find(h, buf, start - base, lettersEnd - start);
+        if (kind >= 0) {
+            emit(kind, start, lettersEnd, 0);
+            return lettersEnd;
+        }
+        if (p == lettersEnd && KeywordTable.isFine(buf, start - base, p - start)) {
+            int end = scanFineSuffix(h, start, p);
+            if (end >= 0) return end;
+        }
+        emit(TokenKind.ID, start, p, symbols.intern(hIdent, buf, start - base, p - start));
+        return p;
+    }
+
+    private int scanFineSuffix(int h, int start, int p) {
+        int second = p;
+        while (classAt(second) == C_SPACE) {
+            second++;
+        }
+        if (second == p || classAt(second) != C_LETTER) return -1;
+        int end = second;
+        while (classAt(end) == C_LETTER) {
+            h = KeywordTable.hash(h, charAt(end));
+            end++;
+        }
+        int kind = KeywordTable.findFine(h, buf, second - base, end - second);
+        if (kind < 0) return -1;
+        emit(kind, start, end, 0);
+        return end;
+    }
+
+    private int scanNumber(int start) {
+        int state = S_INT;
+        int p = start + 1;
+        while (true) {
+            int next = NEXT[state][classAt(p)];
+            if (next == S_STOP) break;
+            state = next;
+            p++;
+        }
+        if (state == S_COMMA) {
+            p--;
+            state = S_INT;
+        }
+        emit(state == S_DEC ? TokenKind.NUM_DEC : TokenKind.NUM_INT, start, p, 0);
+        return p;
+    }
+
+    private int scanString(int start) {
+        int p = start + 1;
+        int c;
+        while ((c = at(p)) >= 0) {
+            if (c == '"') {
+                emit(TokenKind.STRING, start, p + 1, 0);
+                return p + 1;
+            }
+            p += (c == '\\') ? 2 : 1;
+        }
+        throw new RuntimeException("Erro Lexico: Literal de string nao fechado corretamente na posicao " + (base + limit));
+    }
+
+    private final class Stream implements TokenCursor {
+        private int index = 0;
+        private boolean done = false;
+
+        Stream() {
+            next();
+        }
+
+        @Override public int kind() { return kind; }
+        @Override public String lexeme() { return lexeme; }
+        @Override public int index() { return index; }
+
+        @Override
+        public Token token() {
+            return new Token(Token.typeName(TokenKind.category(kind)), lexeme);
+        }
+
+        @Override
+        public int line() {
+            int line = linesBeforeBase;
+            for (int k = 0; k < start - base; k++) {
+                if (buf[k] == '\n') line++;
+            }
+            return line;
+        }
+
+        @Override
+        public boolean is(int kind) {
+            return Lexer.this.kind == kind;
+        }
+
+        @Override
+        public boolean atEnd() {
+            return done;
+        }
+
+        @Override
+        public void advance() {
+            index++;
+            if (kind == TokenKind.EOF) {
+                done = true;
+            } else {
+                next();
             }
         }
-        tokens.add(new Token("EOF", ""));
-        return tokens;
     }
 }
@@ -0,0 +1,520 @@
+package compiladorespj;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import static compiladorespj.AST.*;
+
+// Runs after Optimizer on the typed AST. An expression inside a mentre or per that reads nothing the
+// loop writes is computed once, into a temporary declared just before the loop: from the condition,
+// which runs at least once anyway, and from the head of the body, the statements every iteration runs
+// before the first branch. A computation that could overflow or divide by zero must not run where the
+// original would not have, so when one of those comes out of the body the loop is wrapped in an if on
+// its own first test; a per's initialisation stays outside that if, since it runs even when the loop
+// body never does. Nor does one that can trap move ahead of a scrivi or leggi, which would lose the
+// output before the error or ask for input the program never reads.
+//
+// A per (i assegna a. i minore n. i assegna i piu k), k a positive constant, n left alone by the loop
+// and i written only by the per itself, is a counted loop: ForStmt.step records k (negative for meno
+// with maggiore), and CodeGenerator writes it as a plain counted for.
+//
+// Statements are numbered in preorder, so a loop covers the numbers [start, end) and a variable is
+// invariant in it when none of its writes falls in that range. Loops are done innermost first and an
+// inner loop's temporaries can move on out of the outer one; the block lists are rewritten once, at the
+// end. Nothing recurses on nesting depth.
+public final class LoopOptimizer {
+    // A temporary moves out of at most this many enclosing loops; only a nest deeper than any real
+    // program reaches the limit, and without it such a nest would cost time quadratic in its depth.
+    private static final int MAX_LIFTS = 8;
+
+    private static final class Loop {
+        final Statement statement;
+        final Block parent;
+        final int start;
+        int end;
+
+        Loop(Statement statement, Block parent, int start) {
+            this.statement = statement;
+            this.parent = parent;
+            this.start = start;
+        }
+    }
+
+    private final SymbolTable symbols;
+    private final List<Loop> loops = new ArrayList<>();
+    // What goes just before a loop: its temporaries and, for a guarded per, the initialisation.
+    private final IdentityHashMap<Statement, List<Statement>> before = new IdentityHashMap<>();
+    private final IdentityHashMap<Statement, Statement> replaced = new IdentityHashMap<>();
+    private final IdentityHashMap<Block, Boolean> touched = new IdentityHashMap<>();
+    // The writes of slot s are at positions writePos[writeStart[s] .. writeStart[s + 1]), ascending.
+    private int[] writeStart;
+    private int[] writePos;
+    private int firstTemp;
+    private int temps;
+    private int changes;
+    // How many loops each temporary has moved out of beyond its own, by slot - firstTemp.
+    private int[] lifts = new int[16];
+
+    private Expression[] nodes = new Expression[16];
+    private boolean[] expanded = new boolean[16];
+    private Expression[] results = new Expression[16];
+    private boolean[] invariant = new boolean[16];
+    private boolean[] traps = new boolean[16];
+    private boolean[] unsafe = new boolean[16];
+    // Set by hoist: whether what is left can still trap, and whether anything it took out was unsafe.
+    private boolean residualTrap;
+    private boolean hoistedUnsafe;
+
+    public LoopOptimizer(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public int changes() {
+        return changes;
+    }
+
+    public void optimize(Program p) {
+        if (p == null || p.block == null) return;
+        firstTemp = symbols.size();
+        number(p.block);
+        for (int l = loops.size() - 1; l >= 0; l--) {
+            optimize(loops.get(l));
+        }
+        for (Block b : touched.keySet()) {
+            List<Statement> out = new ArrayList<>(b.statements.size() + 4);
+            for (Statement st : b.statements) {
+                List<Statement> decls = before.get(st);
+                if (decls != null) out.addAll(decls);
+                out.add(replaced.getOrDefault(st, st));
+            }
+            b.statements.clear();
+            b.statements.addAll(out);
+        }
+    }
+
+    // Numbers the statements, records every write of every slot and the range of every loop.
+    private void number(Block root) {
+        int[] slot = new int[64];
+        int[] position = new int[64];
+        int writes = 0;
+        Block[] frames = new Block[16];
+        int[] next = new int[16];
+        int[] closes = new int[16];
+        int top = 0;
+        frames[top] = root;
+        next[top] = 0;
+        closes[top++] = -1;
+        int counter = 0;
+        while (top > 0) {
+            Block b = frames[top - 1];
+            if (b.statements == null || next[top - 1] == b.statements.size()) {
+                if (closes[top - 1] >= 0) loops.get(closes[top - 1]).end = counter;
+                frames[--top] = null;
+                continue;
+            }
+            Statement st = b.statements.get(next[top - 1]++);
+            int pos = counter++;
+            if (writes + 2 > slot.length) {
+                slot = Arrays.copyOf(slot, slot.length * 2);
+                position = Arrays.copyOf(position, slot.length);
+            }
+            Block inner = null;
+            Block other = null;
+            int close = -1;
+            if (st instanceof VarDecl d) {
+                slot[writes] = d.slot;
+                position[writes++] = pos;
+            } else if (st instanceof Assignment a) {
+                slot[writes] = a.slot;
+                position[writes++] = pos;
+            } else if (st instanceof Read r) {
+                slot[writes] = r.slot;
+                position[writes++] = pos;
+            } else if (st instanceof IfStmt i) {
+                inner = i.thenBlock;
+                other = i.elseBlock;
+            } else if (st instanceof WhileStmt w) {
+                inner = w.block;
+                close = loops.size();
+                loops.add(new Loop(st, b, pos));
+            } else if (st instanceof ForStmt f) {
+                slot[writes] = f.init.slot;
+                position[writes++] = pos;
+                slot[writes] = f.update.slot;
+                position[writes++] = pos;
+                inner = f.block;
+                close = loops.size();
+                loops.add(new Loop(st, b, pos));
+            }
+            if (close >= 0 && (inner == null || inner.statements == null)) {
+                loops.get(close).end = counter;
+                continue;
+            }
+            if (top + 2 > frames.length) {
+                frames = Arrays.copyOf(frames, frames.length * 2);
+                next = Arrays.copyOf(next, frames.length);
+                closes = Arrays.copyOf(closes, frames.length);
+            }
+            if (other != null) {
+                frames[top] = other;
+                next[top] = 0;
+                closes[top++] = -1;
+            }
+            if (inner != null) {
+                frames[top] = inner;
+                next[top] = 0;
+                closes[top++] = close;
+            }
+        }
+
+        writeStart = new int[firstTemp + 1];
+        for (int w = 0; w < writes; w++) {
+            writeStart[slot[w] + 1]++;
+        }
+        for (int s = 0; s < firstTemp; s++) {
+            writeStart[s + 1] += writeStart[s];
+        }
+        writePos = new int[writes];
+        int[] fill = Arrays.copyOf(writeStart, firstTemp);
+        for (int w = 0; w < writes; w++) {
+            writePos[fill[slot[w]]++] = position[w];
+        }
+    }
+
+    private boolean writtenIn(int slot, int from, int to) {
+        int lo = writeStart[slot];
+        int hi = writeStart[slot + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (writePos[mid] < from) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo < writeStart[slot + 1] && writePos[lo] < to;
+    }
+
+    // Temporaries count as variant: they are written just before the loop that reads them, and only
+    // their declarations move.
+    private boolean isInvariant(Variable v, Loop loop) {
+        return v.slot >= 0 && v.slot < firstTemp && !writtenIn(v.slot, loop.start, loop.end);
+    }
+
+    private void optimize(Loop loop) {
+        List<Statement> outside = new ArrayList<>();
+        List<Statement> inside = new ArrayList<>();
+        ForStmt f = loop.statement instanceof ForStmt x ? x : null;
+        Condition cond = f != null ? f.cond : ((WhileStmt) loop.statement).cond;
+        Block body = f != null ? f.block : ((WhileStmt) loop.statement).block;
+
+        // The per's initialisation runs before the condition; if it can trap it has to do so first.
+        if (f == null || !mayTrap(f.init.expr)) {
+            cond = hoist(cond, loop, outside, false);
+        }
+        boolean guard = hoistBody(body, loop, inside);
+
+        Statement result;
+        if (f != null) {
+            ForStmt counted = new ForStmt(f.init, cond, f.update, body);
+            counted.step = step(counted, loop);
+            result = counted;
+        } else {
+            result = cond == ((WhileStmt) loop.statement).cond ? loop.statement : new WhileStmt(cond, body);
+        }
+        if (guard) {
+            List<Statement> guarded = new ArrayList<>(inside);
+            if (f != null) {
+                // i assegna a runs once, ahead of the if; inside, the per repeats it, harmlessly unless a
+                // reads i itself, and then it starts from i assegna i instead.
+                outside.add(0, f.init);
+                ForStmt counted = (ForStmt) result;
+                if (reads(f.init.expr, f.init.slot)) {
+                    Variable self = new Variable(f.init.name);
+                    self.slot = f.init.slot;
+                    self.type = symbols.type(f.init.slot);
+                    Assignment again = new Assignment(f.init.name, self);
+                    again.slot = f.init.slot;
+                    ForStmt copy = new ForStmt(again, counted.cond, counted.update, counted.block);
+                    copy.step = counted.step;
+                    result = copy;
+                }
+            }
+            guarded.add(result);
+            result = new IfStmt(cond, new Block(guarded), null);
+        } else {
+            outside.addAll(inside);
+        }
+        if (!outside.isEmpty()) before.put(loop.statement, outside);
+        if (result != loop.statement) replaced.put(loop.statement, result);
+        if (!outside.isEmpty() || result != loop.statement) touched.put(loop.parent, Boolean.TRUE);
+    }
+
+    // Takes what it can from the statements every iteration starts with, including the temporaries an
+    // inner loop there has already hoisted. Returns whether the loop now needs its guard.
+    private boolean hoistBody(Block body, Loop loop, List<Statement> inside) {
+        if (body == null || body.statements == null) return false;
+        List<Statement> list = body.statements;
+        boolean observed = false;
+        boolean guard = false;
+        for (int k = 0; k < list.size(); k++) {
+            Statement st = list.get(k);
+            List<Statement> decls = before.get(st);
+            if (decls != null) {
+                int kept = 0;
+                boolean blocked = false;
+                for (Statement s : decls) {
+                    if (s instanceof VarDecl d && !blocked && lifts[d.slot - firstTemp] < MAX_LIFTS
+                        && hoist(d.init, loop, null, observed) == null) {
+                        lifts[d.slot - firstTemp]++;
+                        inside.add(d);
+                        guard |= hoistedUnsafe;
+                    } else {
+                        // A per's initialisation stays with its loop.
+                        blocked |= mayTrap(s instanceof VarDecl d ? d.init : ((Assignment) s).expr);
+                        decls.set(kept++, s);
+                    }
+                }
+                decls.subList(kept, decls.size()).clear();
+                if (blocked) return guard;
+            }
+            residualTrap = false;
+            hoistedUnsafe = false;
+            if (st instanceof VarDecl d) {
+                if (d.init != null) {
+                    Expression init = hoist(d.init, loop, inside, observed);
+                    if (init != d.init) {
+                        VarDecl copy = new VarDecl(d.isConst, d.name, d.type, init);
+                        copy.slot = d.slot;
+                        list.set(k, copy);
+                    }
+                }
+            } else if (st instanceof Assignment a) {
+                Expression expr = hoist(a.expr, loop, inside, observed);
+                if (expr != a.expr) {
+                    Assignment copy = new Assignment(a.name, expr);
+                    copy.slot = a.slot;
+                    list.set(k, copy);
+                }
+            } else if (st instanceof Write w) {
+                if (w.expressions != null) {
+                    boolean trap = false;
+                    boolean hoisted = false;
+                    for (int e = 0; e < w.expressions.size(); e++) {
+                        w.expressions.set(e, hoist(w.expressions.get(e), loop, inside, observed));
+                        trap |= residualTrap;
+                        hoisted |= hoistedUnsafe;
+                    }
+                    residualTrap = trap;
+                    hoistedUnsafe = hoisted;
+                }
+            } else if (st instanceof IfStmt i) {
+                Condition c = hoist(i.cond, loop, inside, observed);
+                if (c != i.cond) list.set(k, new IfStmt(c, i.thenBlock, i.elseBlock));
+                return guard | hoistedUnsafe;
+            } else if (!(st instanceof Read)) {
+                return guard;
+            }
+            guard |= hoistedUnsafe;
+            if (st instanceof Write || st instanceof Read) observed = true;
+            if (residualTrap) return guard;
+        }
+        return guard;
+    }
+
+    private Condition hoist(Condition c, Loop loop, List<Statement> into, boolean observed) {
+        if (c.singleBooleanExpression != null) {
+            Expression e = hoist(c.singleBooleanExpression, loop, into, observed);
+            return e == c.singleBooleanExpression ? c : typed(new Condition(e));
+        }
+        Expression left = hoist(c.left, loop, into, observed);
+        boolean trap = residualTrap;
+        boolean hoisted = hoistedUnsafe;
+        Expression right = hoist(c.right, loop, into, observed);
+        residualTrap |= trap;
+        hoistedUnsafe |= hoisted;
+        if (left == c.left && right == c.right) return c;
+        return typed(new Condition(left, c.op, right));
+    }
+
+    // Replaces each largest invariant operation in root by a temporary declared in into, and returns
+    // the rewritten expression. With into null nothing is replaced: the result is null when root as a
+    // whole could be hoisted, root otherwise. Post-order over explicit stacks, as in Optimizer.fold.
+    private Expression hoist(Expression root, Loop loop, List<Statement> into, boolean observed) {
+        residualTrap = false;
+        hoistedUnsafe = false;
+        int top = 0;
+        int done = 0;
+        nodes[top] = root;
+        expanded[top++] = false;
+        while (top > 0) {
+            Expression x = nodes[top - 1];
+            if (x instanceof BinaryExpr b && !expanded[top - 1]) {
+                expanded[top - 1] = true;
+                grow(top + 2);
+                nodes[top] = b.right;
+                expanded[top++] = false;
+                nodes[top] = b.left;
+                expanded[top++] = false;
+                continue;
+            }
+            nodes[--top] = null;
+            if (!(x instanceof BinaryExpr b)) {
+                results[done] = x;
+                invariant[done] = x instanceof Literal || x instanceof Variable v && isInvariant(v, loop);
+                traps[done] = false;
+                unsafe[done++] = false;
+                continue;
+            }
+            int r = --done;
+            int l = --done;
+            boolean inv = invariant[l] && invariant[r];
+            boolean trap = traps[l] || traps[r] || traps(b);
+            boolean risky = unsafe[l] || unsafe[r] || b.type == Type.INTERO;
+            Expression left = results[l];
+            Expression right = results[r];
+            if (!(inv && !(trap && observed)) && into != null) {
+                if (hoistable(l, observed)) {
+                    left = temporary(left, into, unsafe[l]);
+                    traps[l] = false;
+                }
+                if (hoistable(r, observed)) {
+                    right = temporary(right, into, unsafe[r]);
+                    traps[r] = false;
+                }
+                trap = traps[l] || traps[r] || traps(b);
+            }
+            results[done] = left == b.left && right == b.right ? b : copy(b, left, right);
+            invariant[done] = inv;
+            traps[done] = trap;
+            unsafe[done++] = risky;
+        }
+        boolean whole = hoistable(0, observed);
+        Expression result = results[0];
+        results[0] = null;
+        if (whole) {
+            if (into == null) {
+                hoistedUnsafe = unsafe[0];
+                return null;
+            }
+            return temporary(result, into, unsafe[0]);
+        }
+        residualTrap = traps[0];
+        return result;
+    }
+
+    private boolean hoistable(int r, boolean observed) {
+        return results[r] instanceof BinaryExpr && invariant[r] && !(traps[r] && observed);
+    }
+
+    private Variable temporary(Expression value, List<Statement> into, boolean risky) {
+        String name = "_h" + temps++;
+        VarDecl d = new VarDecl(false, name, value.type.keyword(), value);
+        d.slot = symbols.declare(name, value.type, false);
+        into.add(d);
+        if (d.slot - firstTemp == lifts.length) lifts = Arrays.copyOf(lifts, lifts.length * 2);
+        Variable v = new Variable(name);
+        v.slot = d.slot;
+        v.type = value.type;
+        hoistedUnsafe |= risky;
+        changes++;
+        return v;
+    }
+
+    private void grow(int size) {
+        if (size <= nodes.length) return;
+        int capacity = Math.max(size, nodes.length * 2);
+        nodes = Arrays.copyOf(nodes, capacity);
+        expanded = Arrays.copyOf(expanded, capacity);
+        results = Arrays.copyOf(results, capacity);
+        invariant = Arrays.copyOf(invariant, capacity);
+        traps = Arrays.copyOf(traps, capacity);
+        unsafe = Arrays.copyOf(unsafe, capacity);
+    }
+
+    // k when f counts i up by k to an invariant bound, -k when it counts down, 0 otherwise.
+    private int step(ForStmt f, Loop loop) {
+        int i = f.init.slot;
+        Condition c = f.cond;
+        if (symbols.type(i) != Type.INTERO || c.singleBooleanExpression != null
+            || !(c.left instanceof Variable v) || v.slot != i || c.right.type != Type.INTERO) {
+            return 0;
+        }
+        if (f.update.slot != i || !(f.update.expr instanceof BinaryExpr b) || !(b.left instanceof Variable u)
+            || u.slot != i || !(b.right instanceof Literal k) || !(k.value instanceof Integer by) || by <= 0) {
+            return 0;
+        }
+        boolean up = switch (c.op) {
+            case "minore", "minoreuguale" -> b.op.equals("piu");
+            default -> false;
+        };
+        boolean down = switch (c.op) {
+            case "maggiore", "maggioreuguale" -> b.op.equals("meno");
+            default -> false;
+        };
+        if (!up && !down || writtenIn(i, loop.start + 1, loop.end) || !bound(c.right, loop)) return 0;
+        return up ? by : -by;
+    }
+
+    // Whether the bound stays put while the loop runs: it reads only invariant variables and the
+    // temporaries just hoisted out in front of the loop.
+    private boolean bound(Expression e, Loop loop) {
+        ArrayDeque<Expression> work = new ArrayDeque<>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            Expression x = work.pop();
+            if (x instanceof BinaryExpr b) {
+                work.push(b.right);
+                work.push(b.left);
+            } else if (x instanceof Variable v && v.slot < firstTemp && !isInvariant(v, loop)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean mayTrap(Expression e) {
+        ArrayDeque<Expression> work = new ArrayDeque<>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            if (work.pop() instanceof BinaryExpr b) {
+                if (traps(b)) return true;
+                work.push(b.right);
+                work.push(b.left);
+            }
+        }
+        return false;
+    }
+
+    // intero diviso and % fail on a zero divisor and on Integer.MIN_VALUE by -1; a constant divisor
+    // other than those never does.
+    private static boolean traps(BinaryExpr b) {
+        return b.type == Type.INTERO && (b.op.equals("diviso") || b.op.equals("%"))
+               && !(b.right instanceof Literal k && k.value instanceof Integer d && d != 0 && d != -1);
+    }
+
+    private static boolean reads(Expression e, int slot) {
+        ArrayDeque<Expression> work = new ArrayDeque<>();
+        work.push(e);
+        while (!work.isEmpty()) {
+            Expression x = work.pop();
+            if (x instanceof BinaryExpr b) {
+                work.push(b.right);
+                work.push(b.left);
+            } else if (x instanceof Variable v && v.slot == slot) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BinaryExpr copy(BinaryExpr b, Expression left, Expression right) {
+        BinaryExpr copy = new BinaryExpr(left, b.op, right);
+        copy.type = b.type;
+        return copy;
+    }
+
+    private static Condition typed(Condition c) {
+        c.type = Type.BOOLEANO;
+        return c;
+    }
+}
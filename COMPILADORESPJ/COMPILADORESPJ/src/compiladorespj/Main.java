@@ -1,57 +1,300 @@
 package compiladorespj;
 
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Main {
 
     public static void main(String[] args) {
-        if (args.length != 2) {
-            System.err.println("Uso: java -jar SeuCompilador.jar <arquivo_de_entrada.cod> <arquivo_de_saida.cpp>");
+        boolean stream = false;
+        boolean mmap = false;
+        boolean batch = false;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String cacheDir = null;
+        String serverSocket = null;
+        boolean printStats = false;
+        String statsJson = null;
+        long cacheMaxMb = 256;
+        int optimize = 0;
+        boolean ir = false;
+        boolean dumpIr = false;
+        boolean fastIo = false;
+        boolean run = false;
+        boolean jvm = false;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--stream")) {
+                stream = true;
+            } else if (arg.equals("--mmap")) {
+                mmap = true;
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else if (arg.equals("--jobs") && i + 1 < args.length) {
+                try {
+                    jobs = Math.max(1, Integer.parseInt(args[++i]));
+                } catch (NumberFormatException e) {
+                    usageError("Numero de tarefas invalido: " + args[i] + " (use --jobs N)");
+                }
+            } else if (arg.equals("--cache") && i + 1 < args.length) {
+                cacheDir = args[++i];
+            } else if (arg.equals("--stats")) {
+                printStats = true;
+            } else if (arg.equals("--stats-json") && i + 1 < args.length) {
+                statsJson = args[++i];
+            } else if (arg.equals("--server") && i + 1 < args.length) {
+                serverSocket = args[++i];
+            } else if (arg.equals("--cache-max") && i + 1 < args.length) {
+                try {
+                    cacheMaxMb = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    cacheMaxMb = -1;
+                }
+                // << 20 must not overflow into a negative or wrapped byte limit
+                if (cacheMaxMb < 0 || cacheMaxMb > Long.MAX_VALUE >> 20) {
+                    usageError("Tamanho de cache invalido: " + args[i] + " (use --cache-max MB, com MB >= 0)");
+                }
+            } else if (arg.equals("--ir")) {
+                ir = true;
+            } else if (arg.equals("--dump-ir")) {
+                dumpIr = true;
+            } else if (arg.equals("--fast-io")) {
+                fastIo = true;
+            } else if (arg.equals("--run")) {
+                run = true;
+            } else if (arg.equals("--jvm")) {
+                run = true;
+                jvm = true;
+            } else if (arg.startsWith("-O")) {
+                try {
+                    optimize = CompilerOptions.parseLevel(arg);
+                } catch (IllegalArgumentException e) {
+                    usageError(e.getMessage());
+                }
+            } else {
+                files.add(arg);
+            }
+        }
+        CompilerOptions options = new CompilerOptions(optimize, ir, fastIo);
+
+        if (serverSocket != null) {
+            try {
+                CompileCache cache = cacheDir != null ? new CompileCache(Paths.get(cacheDir), cacheMaxMb << 20) : null;
+                new CompileServer(Paths.get(serverSocket), jobs, cache, options).serve(System.out);
+            } catch (Exception e) {
+                System.err.println("\nERRO NO SERVIDOR DE COMPILACAO:");
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (run ? files.size() != 1 : batch ? files.size() < 2 : files.size() != 2) {
+            System.err.println("Uso: java -jar SeuCompilador.jar [-O1|-O2] [--ir] [--fast-io] [--dump-ir] [--stream|--mmap] [--cache DIR] <arquivo_de_entrada.cod> <arquivo_de_saida.cpp>");
+            System.err.println("     java -jar SeuCompilador.jar --batch [-O1|-O2] [--ir] [--fast-io] [--jobs N] [--cache DIR] <diretorio_ou_arquivo.cod>... <diretorio_de_saida>");
+            System.err.println("     java -jar SeuCompilador.jar --run [--jvm] [-O1|-O2] <arquivo_de_entrada.cod>");
+            System.err.println("     java -jar SeuCompilador.jar --server <socket> [-O1|-O2] [--ir] [--fast-io] [--jobs N] [--cache DIR]");
             System.err.println("Ou, se executando via IDE/linha de comando direto:");
-            System.err.println("java compiladorespj.Main <arquivo_de_entrada.cod> <arquivo_de_saida.cpp>");
+            System.err.println("java compiladorespj.Main [--stream|--mmap] <arquivo_de_entrada.cod> <arquivo_de_saida.cpp>");
+            System.err.println("  -O1 (ou -O)  dobra expressoes constantes, remove ramos que nunca executam e tira dos");
+            System.err.println("            lacos as contas que nao mudam entre iteracoes (padrao -O0)");
+            System.err.println("  -O2       tambem propaga copias e remove atribuicoes e variaveis nunca lidas (implica --ir)");
+            System.err.println("  --ir      gera o C++ a partir do codigo de tres enderecos (IR) em vez da AST");
+            System.err.println("  --fast-io gera saida bufferizada: '\\n' em vez de endl, scrivi consecutivos em um so cout e");
+            System.err.println("            iostream sem sincronia com stdio; cout esvazia antes de cada leggi e ao sair");
+            System.err.println("  --dump-ir imprime a IR e seu grafo de fluxo de controle apos a analise semantica");
+            System.err.println("  --stream  le a entrada de forma incremental; o Parser puxa os tokens sob demanda");
+            System.err.println("  --mmap    mapeia o arquivo em memoria e analisa os bytes UTF-8 sem copia-los para o heap");
+            System.err.println("  --run     executa o programa na maquina virtual de bytecode, sem gerar nem compilar C++");
+            System.err.println("  --jvm     executa o programa como bytecode JVM, compilado pelo JIT da propria JVM (implica --run)");
+            System.err.println("  --batch   compila varios arquivos em paralelo, sem despejar tokens e tabela de simbolos");
+            System.err.println("  --jobs N  numero maximo de arquivos compilados ao mesmo tempo no modo --batch");
+            System.err.println("  --server S  mantem a JVM aquecida e atende pedidos de compiladorespj.CompileClient no socket Unix S");
+            System.err.println("  --stats          imprime tempo, memoria alocada e contagens de cada fase");
+            System.err.println("  --stats-json F   grava as mesmas estatisticas em JSON no arquivo F");
+            System.err.println("  --cache DIR      reaproveita o C++ de entradas inalteradas, sem tocar na saida existente");
+            System.err.println("  --cache-max MB   tamanho maximo do cache; as entradas menos usadas sao removidas (padrao 256)");
             return;
         }
 
-        String inputFile = args[0];
-        String outputFile = args[1];
+        if (batch) {
+            List<Path> inputs = new ArrayList<>();
+            for (String f : files.subList(0, files.size() - 1)) {
+                inputs.add(Paths.get(f));
+            }
+            try {
+                CompileCache cache = cacheDir != null ? new CompileCache(Paths.get(cacheDir), cacheMaxMb << 20) : null;
+                CompilerStats stats = printStats || statsJson != null ? CompilerStats.aggregate() : null;
+                BatchCompiler compiler = new BatchCompiler(jobs, Paths.get(files.get(files.size() - 1)), cache, options, stats);
+                boolean ok = compiler.run(inputs, System.out);
+                if (printStats) {
+                    stats.print(System.out);
+                }
+                if (statsJson != null) {
+                    stats.writeJson(Paths.get(statsJson));
+                }
+                if (!ok) {
+                    System.exit(1);
+                }
+            } catch (Exception e) {
+                System.err.println("\nERRO DURANTE A COMPILACAO EM LOTE:");
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+
+        if (run) {
+            int status = 1;
+            try {
+                CompilerStats stats = CompilerStats.forFile(files.get(0), printStats || statsJson != null);
+                String source = Files.readString(Paths.get(files.get(0)));
+                Reader in = new InputStreamReader(System.in, StandardCharsets.UTF_8);
+                Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+                if (jvm) {
+                    status = BatchCompiler.load(source, options, stats).run(in, out);
+                } else {
+                    status = new VirtualMachine(BatchCompiler.assemble(source, options, stats)).run(in, out);
+                }
+                if (printStats) {
+                    stats.print(System.err);
+                }
+                if (statsJson != null) {
+                    stats.writeJson(Paths.get(statsJson));
+                }
+            } catch (Exception e) {
+                System.err.println("\nERRO DURANTE A EXECUCAO:");
+                e.printStackTrace();
+            }
+            System.exit(status);
+        }
+
+        String inputFile = files.get(0);
+        String outputFile = files.get(1);
 
         try {
-            String sourceCode = Files.readString(Paths.get(inputFile));
+            CompileCache cache = null;
+            String cacheKey = null;
+            if (cacheDir != null) {
+                cache = new CompileCache(Paths.get(cacheDir), cacheMaxMb << 20);
+                cacheKey = CompileCache.key(Files.readAllBytes(Paths.get(inputFile)), options);
+                if (cache.restore(cacheKey, Paths.get(outputFile))) {
+                    System.out.println("Entrada inalterada; codigo C++ reaproveitado do cache em: " + outputFile);
+                    return;
+                }
+            }
+
+            CompilerStats stats = CompilerStats.forFile(inputFile, printStats || statsJson != null);
+            AST.Program programAst;
+            if (mmap) {
+                MappedByteBuffer mapped;
+                stats.begin(CompilerStats.Phase.READ);
+                try (FileChannel channel = FileChannel.open(Paths.get(inputFile))) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                stats.end(CompilerStats.Phase.READ, mapped.capacity());
+                System.out.println("Iniciando Analise Lexica e Sintatica (arquivo mapeado)...");
+                stats.begin(CompilerStats.Phase.LEX_PARSE);
+                TokenCursor cursor = new Lexer(mapped).stream();
+                Parser parser = new Parser(cursor);
+                programAst = parser.parseProgram();
+                stats.end(CompilerStats.Phase.LEX_PARSE, cursor.index());
+                System.out.println("Analise Lexica e Sintatica concluidas.\n");
+            } else if (stream) {
+                try (FileChannel channel = FileChannel.open(Paths.get(inputFile))) {
+                    System.out.println("Iniciando Analise Lexica e Sintatica (streaming)...");
+                    stats.begin(CompilerStats.Phase.LEX_PARSE);
+                    TokenCursor cursor = new Lexer(channel).stream();
+                    Parser parser = new Parser(cursor);
+                    programAst = parser.parseProgram();
+                    stats.end(CompilerStats.Phase.LEX_PARSE, cursor.index());
+                    System.out.println("Analise Lexica e Sintatica concluidas.\n");
+                }
+            } else {
+                stats.begin(CompilerStats.Phase.READ);
+                String sourceCode = Files.readString(Paths.get(inputFile));
+                stats.end(CompilerStats.Phase.READ, stats.isActive() ? Files.size(Paths.get(inputFile)) : 0);
 
-            System.out.println("Iniciando Analise Lexica...");
-            Lexer lexer = new Lexer(sourceCode);
-            List<Token> tokens = lexer.tokenize();
-            System.out.println("Analise Lexica concluida.\n");
+                System.out.println("Iniciando Analise Lexica...");
+                stats.begin(CompilerStats.Phase.LEX);
+                Lexer lexer = new Lexer(sourceCode);
+                TokenBuffer tokens = lexer.tokenize();
+                stats.end(CompilerStats.Phase.LEX, tokens.size());
+                System.out.println("Analise Lexica concluida.\n");
 
-            System.out.println("Tokens:");
-            for (Token token : tokens) {
-                System.out.println(token);
+                System.out.println("Tokens:");
+                for (TokenCursor cursor = tokens.cursor(); !cursor.atEnd(); cursor.advance()) {
+                    System.out.println(cursor.token());
+                }
+
+                System.out.println("Iniciando Analise Sintatica...");
+                stats.begin(CompilerStats.Phase.PARSE);
+                Parser parser = new Parser(tokens.cursor());
+                programAst = parser.parseProgram();
+                stats.end(CompilerStats.Phase.PARSE, parser.nodeCount());
+                System.out.println("Analise Sintatica concluida.\n");
             }
-            
-            System.out.println("Iniciando Analise Sintatica...");
-            Parser parser = new Parser(tokens);
-            AST.Program programAst = parser.parseProgram(); 
-            System.out.println("Analise Sintatica concluida.\n");
 
             System.out.println("Iniciando Analise Semantica...");
+            stats.begin(CompilerStats.Phase.SEMANTIC);
             SemanticAnalyzer semanticAnalyzer = new SemanticAnalyzer();
             semanticAnalyzer.analyze(programAst); 
+            stats.end(CompilerStats.Phase.SEMANTIC, semanticAnalyzer.symbols().size());
+            semanticAnalyzer.printSymbolTable(System.out);
             System.out.println("Analise Semantica concluida.\n");
+            BatchCompiler.optimize(programAst, semanticAnalyzer.symbols(), options, stats);
+            Ir programIr = null;
+            if (options.lowersToIr() || dumpIr) {
+                programIr = BatchCompiler.lower(programAst, semanticAnalyzer.symbols(), options, stats);
+                if (dumpIr) {
+                    programIr.dump(System.out);
+                    System.out.println();
+                }
+            }
 
             System.out.println("Iniciando Geracao de Codigo C++...");
-            CodeGenerator codeGenerator = new CodeGenerator();
-            String cppCode = codeGenerator.generate(programAst); 
+            stats.begin(CompilerStats.Phase.CODEGEN);
+            Path outputPath = Paths.get(outputFile);
+            try (Writer out = new OutputStreamWriter(Files.newOutputStream(outputPath), StandardCharsets.UTF_8)) {
+                long chars = options.lowersToIr() ? new IrCodeGenerator(programIr, options.fastIo()).generate(out)
+                                : new CodeGenerator(semanticAnalyzer.symbols(), options.fastIo()).generate(programAst, out);
+                stats.end(CompilerStats.Phase.CODEGEN, chars);
+                stats.begin(CompilerStats.Phase.WRITE);
+            }
+            stats.end(CompilerStats.Phase.WRITE, stats.isActive() ? Files.size(outputPath) : 0);
             System.out.println("Geracao de Codigo C++ concluida.");
-
-            Files.writeString(Paths.get(outputFile), cppCode);
+            if (cache != null) {
+                cache.store(cacheKey, outputPath);
+            }
 
             System.out.println("\nCompilacao finalizada com sucesso! Codigo C++ gerado em: " + outputFile);
+            if (printStats) {
+                System.out.println();
+                stats.print(System.out);
+            }
+            if (statsJson != null) {
+                stats.writeJson(Paths.get(statsJson));
+            }
 
         } catch (Exception e) {
             System.err.println("\nERRO DURANTE A COMPILACAO:");
             e.printStackTrace();
         }
     }
+
+    // A malformed option value ends the run like a usage error, without a stack trace.
+    private static void usageError(String message) {
+        System.err.println("Erro: " + message);
+        System.exit(2);
+    }
 }
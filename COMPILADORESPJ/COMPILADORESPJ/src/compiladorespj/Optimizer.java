@@ -0,0 +1,296 @@
+package compiladorespj;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static compiladorespj.AST.*;
+
+// Runs between SemanticAnalyzer and CodeGenerator on a typed AST. Folds operations whose operands are
+// literals, following the C++ the generator would have emitted (int arithmetic truncates, an int meeting
+// a decimale is promoted), and leaves alone anything whose result C++ does not define: overflow,
+// division by zero, non-finite decimals. Branches whose condition folds to a constant are resolved.
+public final class Optimizer implements StatementVisitor<Statement> {
+    private final ArrayDeque<Block> blocks = new ArrayDeque<>();
+    private final ArrayDeque<Statement> queue = new ArrayDeque<>();
+    private Expression[] nodes = new Expression[16];
+    private boolean[] expanded = new boolean[16];
+    private Expression[] results = new Expression[16];
+    private int changes;
+
+    public int changes() {
+        return changes;
+    }
+
+    public void optimize(Program p) {
+        if (p == null || p.block == null) return;
+        blocks.push(p.block);
+        while (!blocks.isEmpty()) {
+            optimize(blocks.pop());
+        }
+    }
+
+    // Rewrites the block's statement list in place. Nested blocks that survive are queued on blocks
+    // rather than visited recursively; a branch that is always taken and declares nothing is spliced
+    // into this block, its statements going through the same loop.
+    private void optimize(Block b) {
+        if (b.statements == null) return;
+        List<Statement> out = new ArrayList<>(b.statements.size());
+        queue.addAll(b.statements);
+        while (!queue.isEmpty()) {
+            Statement st = queue.poll().accept(this);
+            if (st == null) continue;
+            out.add(st);
+            if (st instanceof BreakStmt || st instanceof ReturnStmt) {
+                changes += queue.size();
+                queue.clear();
+            }
+        }
+        b.statements.clear();
+        b.statements.addAll(out);
+    }
+
+    @Override
+    public Statement visitVarDecl(VarDecl d) {
+        Expression init = d.init != null ? fold(d.init) : null;
+        if (init == d.init) return d;
+        VarDecl copy = new VarDecl(d.isConst, d.name, d.type, init);
+        copy.slot = d.slot;
+        return copy;
+    }
+
+    @Override
+    public Statement visitAssignment(Assignment a) {
+        Expression expr = fold(a.expr);
+        if (expr == a.expr) return a;
+        Assignment copy = new Assignment(a.name, expr);
+        copy.slot = a.slot;
+        return copy;
+    }
+
+    @Override
+    public Statement visitRead(Read r) {
+        return r;
+    }
+
+    @Override
+    public Statement visitWrite(Write w) {
+        if (w.expressions != null) {
+            w.expressions.replaceAll(this::fold);
+        }
+        return w;
+    }
+
+    @Override
+    public Statement visitIf(IfStmt i) {
+        Condition cond = fold(i.cond);
+        Boolean constant = constant(cond);
+        if (constant == null) {
+            schedule(i.thenBlock);
+            schedule(i.elseBlock);
+            return cond == i.cond ? i : new IfStmt(cond, i.thenBlock, i.elseBlock);
+        }
+        changes++;
+        Block taken = constant ? i.thenBlock : i.elseBlock;
+        if (taken == null || taken.statements == null) {
+            return null;
+        }
+        if (declaresNothing(taken)) {
+            for (int k = taken.statements.size() - 1; k >= 0; k--) {
+                queue.addFirst(taken.statements.get(k));
+            }
+            return null;
+        }
+        // The branch has to stay a scope of its own; C++ is left with an if (true).
+        schedule(taken);
+        return new IfStmt(typed(new Condition(literal(true, Type.BOOLEANO))), taken, null);
+    }
+
+    @Override
+    public Statement visitWhile(WhileStmt w) {
+        Condition cond = fold(w.cond);
+        if (Boolean.FALSE.equals(constant(cond))) {
+            changes++;
+            return null;
+        }
+        schedule(w.block);
+        return cond == w.cond ? w : new WhileStmt(cond, w.block);
+    }
+
+    @Override
+    public Statement visitFor(ForStmt f) {
+        Assignment init = (Assignment) visitAssignment(f.init);
+        Condition cond = fold(f.cond);
+        if (Boolean.FALSE.equals(constant(cond))) {
+            changes++;
+            return init;
+        }
+        Assignment update = (Assignment) visitAssignment(f.update);
+        schedule(f.block);
+        if (init == f.init && cond == f.cond && update == f.update) return f;
+        return new ForStmt(init, cond, update, f.block);
+    }
+
+    @Override
+    public Statement visitReturn(ReturnStmt r) {
+        Expression expr = fold(r.expr);
+        return expr == r.expr ? r : new ReturnStmt(expr);
+    }
+
+    @Override
+    public Statement visitBreak(BreakStmt b) {
+        return b;
+    }
+
+    private void schedule(Block b) {
+        if (b != null) blocks.push(b);
+    }
+
+    private static boolean declaresNothing(Block b) {
+        for (Statement st : b.statements) {
+            if (st instanceof VarDecl) return false;
+        }
+        return true;
+    }
+
+    private static Boolean constant(Condition c) {
+        return c.singleBooleanExpression instanceof Literal l && l.value instanceof Boolean v ? v : null;
+    }
+
+    private Condition fold(Condition c) {
+        if (c.singleBooleanExpression != null) {
+            Expression e = fold(c.singleBooleanExpression);
+            return e == c.singleBooleanExpression ? c : typed(new Condition(e));
+        }
+        Expression left = fold(c.left);
+        Expression right = fold(c.right);
+        if (left instanceof Literal a && right instanceof Literal b) {
+            Boolean v = compare(c.op, a.value, b.value);
+            if (v != null) {
+                changes++;
+                return typed(new Condition(literal(v, Type.BOOLEANO)));
+            }
+        }
+        if (left == c.left && right == c.right) return c;
+        return typed(new Condition(left, c.op, right));
+    }
+
+    // Post-order over the operator tree with explicit stacks: long left-leaning chains are as deep as
+    // they are long. Unchanged subtrees are returned as they are.
+    private Expression fold(Expression root) {
+        if (!(root instanceof BinaryExpr)) return root;
+        int top = 0;
+        int done = 0;
+        nodes[top] = root;
+        expanded[top++] = false;
+        while (top > 0) {
+            Expression x = nodes[top - 1];
+            if (x instanceof BinaryExpr b && !expanded[top - 1]) {
+                expanded[top - 1] = true;
+                if (top + 2 > nodes.length) {
+                    nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                    expanded = Arrays.copyOf(expanded, nodes.length);
+                    results = Arrays.copyOf(results, nodes.length);
+                }
+                nodes[top] = b.right;
+                expanded[top++] = false;
+                nodes[top] = b.left;
+                expanded[top++] = false;
+                continue;
+            }
+            nodes[--top] = null;
+            if (x instanceof BinaryExpr b) {
+                Expression right = results[--done];
+                Expression left = results[--done];
+                results[done++] = combine(b, left, right);
+            } else {
+                results[done++] = x;
+            }
+        }
+        Expression folded = results[0];
+        results[0] = null;
+        return folded;
+    }
+
+    private Expression combine(BinaryExpr b, Expression left, Expression right) {
+        if (left instanceof Literal l && right instanceof Literal r) {
+            Object v = switch (b.type) {
+                case INTERO -> integer(b.op, (Integer) l.value, (Integer) r.value);
+                case DECIMALE -> decimal(b.op, ((Number) l.value).doubleValue(), ((Number) r.value).doubleValue());
+                case TESTO -> b.op.equals("piu") ? (String) l.value + r.value : null;
+                default -> null;
+            };
+            if (v != null) {
+                changes++;
+                return literal(v, b.type);
+            }
+        }
+        if (left == b.left && right == b.right) return b;
+        BinaryExpr copy = new BinaryExpr(left, b.op, right);
+        copy.type = b.type;
+        return copy;
+    }
+
+    private static Integer integer(String op, int a, int b) {
+        try {
+            return switch (op) {
+                case "piu" -> Math.addExact(a, b);
+                case "meno" -> Math.subtractExact(a, b);
+                case "moltiplica" -> Math.multiplyExact(a, b);
+                case "diviso" -> b == 0 || b == -1 && a == Integer.MIN_VALUE ? null : a / b;
+                case "%" -> b == 0 || b == -1 && a == Integer.MIN_VALUE ? null : a % b;
+                default -> null;
+            };
+        } catch (ArithmeticException overflow) {
+            return null;
+        }
+    }
+
+    private static Double decimal(String op, double a, double b) {
+        double v = switch (op) {
+            case "piu" -> a + b;
+            case "meno" -> a - b;
+            case "moltiplica" -> a * b;
+            case "diviso" -> a / b;
+            default -> Double.NaN;
+        };
+        return Double.isFinite(v) ? v : null;
+    }
+
+    private static Boolean compare(String op, Object a, Object b) {
+        if (a instanceof Number x && b instanceof Number y) {
+            if (a instanceof Integer i && b instanceof Integer j) {
+                return relation(op, Integer.compare(i, j));
+            }
+            return relation(op, Double.compare(x.doubleValue() + 0.0, y.doubleValue() + 0.0));
+        }
+        return switch (op) {
+            case "uguale" -> a.equals(b);
+            case "diverso" -> !a.equals(b);
+            default -> null;
+        };
+    }
+
+    private static Boolean relation(String op, int cmp) {
+        return switch (op) {
+            case "uguale" -> cmp == 0;
+            case "diverso" -> cmp != 0;
+            case "minore" -> cmp < 0;
+            case "maggiore" -> cmp > 0;
+            case "minoreuguale" -> cmp <= 0;
+            case "maggioreuguale" -> cmp >= 0;
+            default -> null;
+        };
+    }
+
+    private static Literal literal(Object value, Type type) {
+        Literal l = new Literal(value);
+        l.type = type;
+        return l;
+    }
+
+    private static Condition typed(Condition c) {
+        c.type = Type.BOOLEANO;
+        return c;
+    }
+}
@@ -1,280 +1,310 @@
 package compiladorespj;
 
-import java.util.List;
 import java.util.ArrayList;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.List;
 import static compiladorespj.AST.*;
+import static compiladorespj.TokenKind.*;
 
 public class Parser {
-    private final List<Token> tokens;
-    private int pos = 0;
+    private static final long BLOCK_END = set(EOF, FINEPROG, ALTRIMENTI, FINESE, FINEMENTRE, FINEPER);
+    private static final long FIRST_DECLARATION = set(VAR, COST);
+    private static final long FIRST_COMMAND = set(LEGGI, SCRIVI, SE, MENTRE, PER, RITORNA, INTERROMPI, ID);
+    private static final long ARITHMETIC_OPS = set(PIU, MENO, MOLTIPLICA, DIVISO, MODULO);
+    private static final long RELATIONAL_OPS = set(UGUALE, DIVERSO, MINORE, MAGGIORE, MINOREUGUALE, MAGGIOREUGUALE);
+
+    private final TokenCursor tokens;
     private String lastConsumedLexemeForError = "";
+    private int nodeCount;
 
-    public Parser(List<Token> tokens) {
+    public Parser(TokenCursor tokens) {
         this.tokens = tokens;
     }
 
-    private Token peek() {
-        if (pos < tokens.size()) {
-            return tokens.get(pos);
-        }
-        return new Token("EOF", "");
+    public int nodeCount() {
+        return nodeCount;
     }
-    
-    private int getCurrentLineApprox() {
-        int lines = 1;
-        for (int i = 0; i < Math.min(pos, tokens.size()); i++) {
-            if (tokens.get(i).getLexema().contains("\n")) {
-                 lines++;
-            }
-        }
-        return lines;
+
+    private <T> T node(T n) {
+        nodeCount++;
+        return n;
+    }
+
+    private RuntimeException syntaxError(String detail) {
+        return new RuntimeException("Erro de sintaxe (linha ~" + tokens.line() + ", apos '" + lastConsumedLexemeForError + "'): " + detail);
     }
 
-    private Token consume(String expectedType) {
-        Token t = peek();
-        if (!t.getTipo().equals(expectedType)) {
-            throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Esperado token do tipo " + expectedType +
-                                       " mas encontrou " + t + " na posicao de token " + pos);
+    private void expect(int kind) {
+        if (tokens.kind() != kind) {
+            String expected = kind == EOF
+                ? "token do tipo EOF"
+                : "token <" + Token.typeName(TokenKind.category(kind)) + ", " + TokenKind.lexeme(kind) + ">";
+            throw syntaxError("Esperado " + expected + " mas encontrou " + tokens.token() + " na posicao de token " + tokens.index());
         }
-        lastConsumedLexemeForError = t.getLexema();
-        pos++;
-        return t;
+        lastConsumedLexemeForError = TokenKind.lexeme(kind);
+        tokens.advance();
     }
 
-    private Token consume(String expectedType, String expectedLexeme) {
-        Token t = peek();
-        if (!t.getTipo().equals(expectedType) || !t.getLexema().equals(expectedLexeme)) {
-            throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Esperado token <" + expectedType + ", " + expectedLexeme +
-                                       "> mas encontrou " + t + " na posicao de token " + pos);
+    private String identifier() {
+        if (tokens.kind() != ID) {
+            throw syntaxError("Esperado token do tipo ID mas encontrou " + tokens.token() + " na posicao de token " + tokens.index());
         }
-        lastConsumedLexemeForError = t.getLexema();
-        pos++;
-        return t;
+        String name = tokens.lexeme();
+        lastConsumedLexemeForError = name;
+        tokens.advance();
+        return name;
     }
 
     public Program parseProgram() {
-        consume("KEYWORD", "programma");
-        String name = consume("ID").getLexema();
+        expect(PROGRAMMA);
+        String name = identifier();
         Block block = parseBlock();
-        consume("KEYWORD", "fineprog");
-        consume("EOF");
-        return new Program(name, block);
+        expect(FINEPROG);
+        expect(EOF);
+        return node(new Program(name, block));
     }
 
+    // Blocks nest through se/mentre/per, so the statements of every construct still open are kept on
+    // an explicit stack instead of the Java one; a construct's header is parsed when it is pushed and
+    // its node is built when its terminator is reached.
     private Block parseBlock() {
-        ArrayList<Statement> stmts = new ArrayList<>();
-        while (!peek().getTipo().equals("EOF") &&
-               !isBlockEndKeyword(peek().getLexema())) {
-            if (peek().getLexema().equals("var") || peek().getLexema().equals("cost")) {
-                stmts.add(parseDeclaration());
-            } else if (isCommandStartKeyword(peek().getLexema()) || peek().getTipo().equals("ID")) {
-                stmts.add(parseCommand());
+        OpenBlock open = new OpenBlock(null, 0);
+        int k;
+        while (true) {
+            k = tokens.kind();
+            if (in(FIRST_DECLARATION, k)) {
+                open.statements.add(parseDeclaration());
+            } else if (k == SE || k == MENTRE || k == PER) {
+                open = parseHeader(open, k);
+            } else if (in(FIRST_COMMAND, k)) {
+                open.statements.add(parseCommand());
+            } else if (!in(BLOCK_END, k)) {
+                throw syntaxError("Token inesperado no inicio do bloco ou comando: " + tokens.token() + " na posicao de token " + tokens.index());
             } else {
-                throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Token inesperado no inicio do bloco ou comando: " + peek() + " na posicao de token " + pos);
+                Block block = node(new Block(open.statements));
+                if (open.parent == null) {
+                    return block;
+                }
+                if (open.kind == SE && open.thenBlock == null && k == ALTRIMENTI) {
+                    expect(ALTRIMENTI);
+                    open.thenBlock = block;
+                    open.statements = new ArrayList<>();
+                    continue;
+                }
+                open.parent.statements.add(close(open, block));
+                open = open.parent;
             }
         }
-        return new Block(stmts);
     }
 
-    private boolean isBlockEndKeyword(String lexema) {
-        return lexema.equals("fineprog") || lexema.equals("altrimenti") ||
-               lexema.equals("finese") || lexema.equals("finementre") ||
-               lexema.equals("fineper");
+    private OpenBlock parseHeader(OpenBlock parent, int kind) {
+        OpenBlock open = new OpenBlock(parent, kind);
+        expect(kind);
+        expect(ABRE_PAR);
+        if (kind == PER) {
+            open.init = parseAssignment(); expect(PONTO);
+            open.cond = parseCond();       expect(PONTO);
+            open.update = parseAssignment();
+        } else {
+            open.cond = parseCond();
+        }
+        expect(FECHA_PAR);
+        expect(kind == SE ? ALLORA : FAI);
+        return open;
     }
 
-    private boolean isCommandStartKeyword(String lexema) {
-        return lexema.equals("leggi") || lexema.equals("scrivi") || lexema.equals("se") ||
-               lexema.equals("mentre") || lexema.equals("per") || lexema.equals("ritorna") ||
-               lexema.equals("interrompi");
+    private Statement close(OpenBlock open, Block block) {
+        switch (open.kind) {
+            case SE:
+                expect(FINESE);
+                return open.thenBlock == null
+                    ? node(new IfStmt(open.cond, block, null))
+                    : node(new IfStmt(open.cond, open.thenBlock, block));
+            case MENTRE:
+                expect(FINEMENTRE);
+                return node(new WhileStmt(open.cond, block));
+            default:
+                expect(FINEPER);
+                return node(new ForStmt(open.init, open.cond, open.update, block));
+        }
+    }
+
+    private static final class OpenBlock {
+        final OpenBlock parent;
+        final int kind;
+        ArrayList<Statement> statements = new ArrayList<>();
+        Condition cond;
+        Assignment init;
+        Assignment update;
+        Block thenBlock;
+
+        OpenBlock(OpenBlock parent, int kind) {
+            this.parent = parent;
+            this.kind = kind;
+        }
     }
 
     private VarDecl parseDeclaration() {
-        boolean isConst = false;
-        if (peek().getLexema().equals("var")) {
-            consume("KEYWORD", "var");
-        } else if (peek().getLexema().equals("cost")) {
-            consume("KEYWORD", "cost");
-            isConst = true;
-        } else {
-             throw new RuntimeException("Erro de sintaxe (parseDeclaration, após '" + lastConsumedLexemeForError + "'): Esperado 'var' ou 'cost', encontrou " + peek());
+        boolean isConst = tokens.kind() == COST;
+        expect(isConst ? COST : VAR);
+        String name = identifier();
+        expect(DOIS_PONTOS);
+        int typeKind = tokens.kind();
+        if (!TokenKind.isKeyword(typeKind)) {
+            throw syntaxError("Esperado token do tipo KEYWORD mas encontrou " + tokens.token() + " na posicao de token " + tokens.index());
         }
-        String name = consume("ID").getLexema();
-        consume("SYMBOL", ":");
-        String type = consume("KEYWORD").getLexema();
+        expect(typeKind);
+        String type = TokenKind.lexeme(typeKind);
         Expression init = null;
-        if (peek().getTipo().equals("KEYWORD") && peek().getLexema().equals("assegna")) {
-            consume("KEYWORD", "assegna");
+        if (tokens.kind() == ASSEGNA) {
+            expect(ASSEGNA);
             init = parseExpr();
         } else if (isConst) {
-            throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Constante '" + name + "' deve ser inicializada com 'assegna expressao'.");
+            throw syntaxError("Constante '" + name + "' deve ser inicializada com 'assegna expressao'.");
         }
-        consume("SYMBOL", ".");
-        return new VarDecl(isConst, name, type, init);
+        expect(PONTO);
+        return node(new VarDecl(isConst, name, type, init));
     }
 
     private Statement parseCommand() {
-        Token current = peek();
         Statement stmt;
-        switch (current.getLexema()) {
-            case "leggi": stmt = parseRead(); consume("SYMBOL", "."); break;
-            case "scrivi": stmt = parseWrite(); consume("SYMBOL", "."); break;
-            case "se": stmt = parseIf(); break;
-            case "mentre": case "per": stmt = parseRepetition(); break;
-            case "ritorna": stmt = parseReturn(); consume("SYMBOL", "."); break;
-            case "interrompi": consume("KEYWORD", "interrompi"); consume("SYMBOL", "."); stmt = new AST.BreakStmt(); break;
+        switch (tokens.kind()) {
+            case LEGGI: stmt = parseRead(); expect(PONTO); break;
+            case SCRIVI: stmt = parseWrite(); expect(PONTO); break;
+            case RITORNA: stmt = parseReturn(); expect(PONTO); break;
+            case INTERROMPI: expect(INTERROMPI); expect(PONTO); stmt = node(new AST.BreakStmt()); break;
+            case ID: stmt = parseAssignment(); expect(PONTO); break;
             default:
-                if (current.getTipo().equals("ID")) {
-                    stmt = parseAssignment();
-                    consume("SYMBOL", ".");
-                } else {
-                    throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Comando inesperado " + current + " na posicao de token " + pos);
-                }
-                break;
+                throw syntaxError("Comando inesperado " + tokens.token() + " na posicao de token " + tokens.index());
         }
         return stmt;
     }
 
     private Assignment parseAssignment() {
-        String name = consume("ID").getLexema();
-        consume("KEYWORD", "assegna");
+        String name = identifier();
+        expect(ASSEGNA);
         Expression expr = parseExpr();
-        return new Assignment(name, expr);
+        return node(new Assignment(name, expr));
     }
 
     private Read parseRead() {
-        consume("KEYWORD", "leggi");
-        consume("SYMBOL", "(");
-        String name = consume("ID").getLexema();
-        consume("SYMBOL", ")");
-        return new Read(name);
+        expect(LEGGI);
+        expect(ABRE_PAR);
+        String name = identifier();
+        expect(FECHA_PAR);
+        return node(new Read(name));
     }
 
     private Write parseWrite() {
-        consume("KEYWORD", "scrivi");
-        consume("SYMBOL", "(");
+        expect(SCRIVI);
+        expect(ABRE_PAR);
         List<Expression> expressions = new ArrayList<>();
         expressions.add(parseExpr());
-        while (peek().getTipo().equals("SYMBOL") && peek().getLexema().equals(",")) {
-            consume("SYMBOL", ",");
+        while (tokens.kind() == VIRGULA) {
+            expect(VIRGULA);
             expressions.add(parseExpr());
         }
-        consume("SYMBOL", ")");
-        return new Write(expressions);
-    }
-
-    private IfStmt parseIf() {
-        consume("KEYWORD", "se");
-        consume("SYMBOL", "(");
-        Condition cond = parseCond();
-        consume("SYMBOL", ")");
-        consume("KEYWORD", "allora");
-        Block thenB = parseBlock();
-        Block elseB = null;
-        if (peek().getTipo().equals("KEYWORD") && peek().getLexema().equals("altrimenti")) {
-            consume("KEYWORD", "altrimenti");
-            elseB = parseBlock();
-        }
-        consume("KEYWORD", "finese");
-        return new IfStmt(cond, thenB, elseB);
-    }
-    
-    private Statement parseRepetition() {
-        if (peek().getLexema().equals("mentre")) {
-            return parseWhile();
-        } else if (peek().getLexema().equals("per")) {
-            return parseFor();
-        } else {
-            throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Esperado 'mentre' ou 'per', encontrou " + peek());
-        }
-    }
-
-    private WhileStmt parseWhile() {
-        consume("KEYWORD", "mentre");
-        consume("SYMBOL", "(");
-        Condition cond = parseCond();
-        consume("SYMBOL", ")");
-        consume("KEYWORD", "fai");
-        Block b = parseBlock();
-        consume("KEYWORD", "finementre");
-        return new WhileStmt(cond, b);
-    }
-
-    private ForStmt parseFor() {
-        consume("KEYWORD", "per");
-        consume("SYMBOL", "(");
-        Assignment init = parseAssignment(); consume("SYMBOL", ".");
-        Condition cond = parseCond();        consume("SYMBOL", ".");
-        Assignment update = parseAssignment();
-        consume("SYMBOL", ")");
-        consume("KEYWORD", "fai");
-        Block b = parseBlock();
-        consume("KEYWORD", "fineper");
-        return new ForStmt(init, cond, update, b);
+        expect(FECHA_PAR);
+        return node(new Write(expressions));
     }
 
     private ReturnStmt parseReturn() {
-        consume("KEYWORD", "ritorna");
+        expect(RITORNA);
         Expression e = parseExpr();
-        return new ReturnStmt(e);
+        return node(new ReturnStmt(e));
     }
 
     private Condition parseCond() {
         Expression expr = parseExpr();
-
-        Token opToken = peek();
-        Set<String> relationalOps = Set.of("uguale", "diverso", "minore", "maggiore", "minoreuguale", "maggioreuguale");
-        if (opToken.getTipo().equals("OPERATOR") && relationalOps.contains(opToken.getLexema())) {
-            consume("OPERATOR");
+        int op = tokens.kind();
+        if (in(RELATIONAL_OPS, op)) {
+            expect(op);
             Expression rightExpr = parseExpr();
-            return new Condition(expr, opToken.getLexema(), rightExpr);
+            return node(new Condition(expr, TokenKind.lexeme(op), rightExpr));
         } else {
-            return new Condition(expr);
+            return node(new Condition(expr));
         }
     }
 
+    // Parenthesised operands open a new level on an explicit stack rather than recursing, so nesting
+    // depth is bounded by the heap. Each level keeps the left operand and operator still waiting for
+    // their right-hand side; chains stay flat and left-associative as before.
     private Expression parseExpr() {
-        Expression left = parseTerm();
-        Set<String> arithmeticOps = Set.of("piu", "meno", "moltiplica", "diviso", "%");
-        while (peek().getTipo().equals("OPERATOR") && arithmeticOps.contains(peek().getLexema())) {
-            String op = consume("OPERATOR").getLexema();
-            Expression right = parseTerm();
-            left = new BinaryExpr(left, op, right);
+        Expression[] lefts = new Expression[4];
+        int[] ops = new int[4];
+        int depth = 0;
+        while (true) {
+            while (tokens.kind() == ABRE_PAR) {
+                expect(ABRE_PAR);
+                if (++depth == lefts.length) {
+                    lefts = Arrays.copyOf(lefts, depth * 2);
+                    ops = Arrays.copyOf(ops, depth * 2);
+                }
+            }
+            Expression e = parseTerm();
+            while (true) {
+                if (lefts[depth] != null) {
+                    e = node(new BinaryExpr(lefts[depth], TokenKind.lexeme(ops[depth]), e));
+                    lefts[depth] = null;
+                }
+                int op = tokens.kind();
+                if (in(ARITHMETIC_OPS, op)) {
+                    expect(op);
+                    lefts[depth] = e;
+                    ops[depth] = op;
+                    break;
+                }
+                if (depth == 0) {
+                    return e;
+                }
+                expect(FECHA_PAR);
+                depth--;
+            }
         }
-        return left;
     }
 
     private Expression parseTerm() {
-        Token t = peek();
-        switch (t.getTipo()) {
-            case "NUM_INT":
-                pos++;
-                try { return new Literal(Integer.parseInt(t.getLexema())); }
-                catch (NumberFormatException e) { throw new RuntimeException("Erro ao converter NUM_INT '" + t.getLexema() + "' na pos " + (pos-1)); }
-            case "NUM_DEC":
-                pos++;
-                String lexemaOriginal = t.getLexema();
+        int pos = tokens.index();
+        int kind = tokens.kind();
+        switch (kind) {
+            case NUM_INT: {
+                String lexema = tokens.lexeme();
+                tokens.advance();
+                try { return node(new Literal(Integer.parseInt(lexema))); }
+                catch (NumberFormatException e) { throw new RuntimeException("Erro ao converter NUM_INT '" + lexema + "' na pos " + pos); }
+            }
+            case NUM_DEC: {
+                String lexemaOriginal = tokens.lexeme();
+                tokens.advance();
                 String lexemaParaParse = lexemaOriginal.replace(',', '.');
-                try { return new Literal(Double.parseDouble(lexemaParaParse)); }
-                catch (NumberFormatException e) { throw new RuntimeException("Erro ao converter NUM_DEC '" + lexemaOriginal + "' para double na pos " + (pos-1));}
-            case "STRING":
-                pos++; return new Literal(t.getLexema());
-            case "ID":
-                pos++; return new Variable(t.getLexema());
-            case "KEYWORD":
-                if (t.getLexema().equals("vero")) { pos++; return new Literal(true); }
-                else if (t.getLexema().equals("falso")) { pos++; return new Literal(false); }
-                throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Keyword '" + t.getLexema() + "' inesperada como termo na posição de token " + pos);
-            case "SYMBOL":
-                if (t.getLexema().equals("(")) {
-                    consume("SYMBOL", "(");
-                    Expression e = parseExpr();
-                    consume("SYMBOL", ")");
-                    return e;
-                }
-                throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Simbolo '" + t.getLexema() + "' inesperado como termo na posicao de token " + pos);
+                try { return node(new Literal(Double.parseDouble(lexemaParaParse))); }
+                catch (NumberFormatException e) { throw new RuntimeException("Erro ao converter NUM_DEC '" + lexemaOriginal + "' para double na pos " + pos);}
+            }
+            case STRING: {
+                String lexema = tokens.lexeme();
+                tokens.advance();
+                return node(new Literal(lexema));
+            }
+            case ID: {
+                String lexema = tokens.lexeme();
+                tokens.advance();
+                return node(new Variable(lexema));
+            }
+            case VERO:
+                tokens.advance();
+                return node(new Literal(true));
+            case FALSO:
+                tokens.advance();
+                return node(new Literal(false));
             default:
-                throw new RuntimeException("Erro de sintaxe (linha ~" + getCurrentLineApprox() + ", apos '" + lastConsumedLexemeForError + "'): Termo inesperado " + t + " (tipo: " + t.getTipo() + ")" + " na posicao de token " + pos);
+                switch (TokenKind.category(kind)) {
+                    case Token.KEYWORD:
+                        throw syntaxError("Keyword '" + TokenKind.lexeme(kind) + "' inesperada como termo na posição de token " + pos);
+                    case Token.SYMBOL:
+                        throw syntaxError("Simbolo '" + TokenKind.lexeme(kind) + "' inesperado como termo na posicao de token " + pos);
+                    default:
+                        throw syntaxError("Termo inesperado " + tokens.token() + " (tipo: " + Token.typeName(TokenKind.category(kind)) + ")" + " na posicao de token " + pos);
+                }
         }
     }
 }
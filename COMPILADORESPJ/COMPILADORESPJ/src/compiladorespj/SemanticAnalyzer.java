@@ -1,12 +1,22 @@
 package compiladorespj;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.Set;
 import static compiladorespj.AST.*;
 
-public class SemanticAnalyzer {
-    private final Map<String,String> symtab = new HashMap<>();
+public class SemanticAnalyzer implements StatementVisitor<Void>, ExpressionVisitor<Type> {
+    private static final Set<String> ARITHMETIC_OPS = Set.of("piu", "meno", "moltiplica", "diviso", "%");
+
+    private final SymbolTable symbols = new SymbolTable();
+    private Block[] pendingBlocks = new Block[16];
+    private int[] pendingNext = new int[16];
+    private int pendingTop;
+    private Expression[] exprStack = new Expression[16];
+
+    public SymbolTable symbols() {
+        return symbols;
+    }
 
     public void analyze(Program p) {
         if (p == null || p.block == null) {
@@ -14,198 +24,253 @@ public class SemanticAnalyzer {
             return;
         }
         visitBlock(p.block);
+    }
 
-        System.out.println("--- Tabela de Simbolos (Apos Analise Semantica) ---");
-        if (symtab.isEmpty()) {
-            System.out.println("Tabela de simbolos vazia.");
+    public void printSymbolTable(PrintStream out) {
+        out.println("--- Tabela de Simbolos (Apos Analise Semantica) ---");
+        if (symbols.size() == 0) {
+            out.println("Tabela de simbolos vazia.");
         } else {
-            for (Map.Entry<String, String> entry : symtab.entrySet()) {
-                System.out.println("ID: " + entry.getKey() + ", Tipo: " + entry.getValue());
+            for (int slot = 0; slot < symbols.size(); slot++) {
+                out.println("ID: " + symbols.name(slot) + ", Tipo: " + symbols.type(slot));
             }
         }
-        System.out.println("----------------------------------------------------");
+        out.println("----------------------------------------------------");
     }
 
-    private void visitBlock(Block b) {
-        if (b == null || b.statements == null) return;
-        for (Statement st : b.statements) {
-            visitStmt(st);
+    // Nested blocks are not visited recursively: visitIf/visitWhile/visitFor schedule them on
+    // pendingBlocks and this loop walks them, entering each block's scope when it starts.
+    private void visitBlock(Block root) {
+        int base = pendingTop;
+        schedule(root);
+        while (pendingTop > base) {
+            int top = pendingTop - 1;
+            Block b = pendingBlocks[top];
+            int next = pendingNext[top];
+            if (next < 0) {
+                symbols.enterScope();
+                next = 0;
+            }
+            if (next == b.statements.size()) {
+                symbols.exitScope();
+                pendingBlocks[top] = null;
+                pendingTop = top;
+                continue;
+            }
+            pendingNext[top] = next + 1;
+            Statement st = b.statements.get(next);
+            if (st != null) st.accept(this);
         }
     }
 
-    private void visitStmt(Statement st) {
-        if (st == null) return;
-        String stmtClassName = st.getClass().getSimpleName();
-        switch (stmtClassName) {
-            case "VarDecl":    checkVarDecl((VarDecl)st);   break;
-            case "Assignment": checkAssign((Assignment)st); break;
-            case "Read":       checkRead((Read)st);         break;
-            case "Write":      checkWrite((Write)st);       break;
-            case "IfStmt":     checkIf((IfStmt)st);         break;
-            case "WhileStmt":  checkWhile((WhileStmt)st);   break;
-            case "ForStmt":    checkFor((ForStmt)st);       break;
-            case "ReturnStmt": checkReturn((ReturnStmt)st); break;
-            case "BreakStmt":  checkBreak((BreakStmt)st);   break;
-            default:
-                error("Analise Sematica: Stmt nao suportado: " + stmtClassName);
+    private void schedule(Block b) {
+        if (b == null || b.statements == null) return;
+        if (pendingTop == pendingBlocks.length) {
+            pendingBlocks = Arrays.copyOf(pendingBlocks, pendingTop * 2);
+            pendingNext = Arrays.copyOf(pendingNext, pendingTop * 2);
         }
+        pendingBlocks[pendingTop] = b;
+        pendingNext[pendingTop++] = -1;
     }
 
-    private void checkVarDecl(VarDecl d) {
-        if (symtab.containsKey(d.name)) {
+    @Override
+    public Void visitVarDecl(VarDecl d) {
+        Type type = Type.fromKeyword(d.type);
+        if (type == null) {
+            error("Tipo '" + d.type + "' desconhecido na declaracao da variavel '" + d.name + "'.");
+        }
+        d.slot = symbols.declare(d.name, type, d.isConst);
+        if (d.slot < 0) {
             error("Variavel '" + d.name + "' ja declarada.");
         }
-        symtab.put(d.name, d.type);
         if (d.init != null) {
-            String tExpr = typeOf(d.init);
-            if (!canAssign(d.type, tExpr)) {
-                error("Inicializador da variavel '" + d.name + "' (tipo " + d.type +
+            Type tExpr = typeOf(d.init);
+            if (!canAssign(type, tExpr)) {
+                error("Inicializador da variavel '" + d.name + "' (tipo " + type +
                       ") é incompativel com o tipo da expressao '" + tExpr + "'.");
             }
         }
+        return null;
     }
     
-    private boolean canAssign(String varType, String exprType) {
-        if (varType.equals(exprType)) return true;
-        if (varType.equals("decimale") && exprType.equals("intero")) return true;
+    private boolean canAssign(Type varType, Type exprType) {
+        if (varType == exprType) return true;
+        if (varType == Type.DECIMALE && exprType == Type.INTERO) return true;
         return false;
     }
 
-    private void checkAssign(Assignment a) {
-        if (!symtab.containsKey(a.name)) {
+    @Override
+    public Void visitAssignment(Assignment a) {
+        a.slot = symbols.lookup(a.name);
+        if (a.slot < 0) {
             error("Variael '" + a.name + "' nao declarada antes de ser usada em atribuicao.");
         }
-        String tVar  = symtab.get(a.name);
-        String tExpr = typeOf(a.expr);
+        Type tVar  = symbols.type(a.slot);
+        Type tExpr = typeOf(a.expr);
         if (!canAssign(tVar, tExpr)) {
             error("Atribuicao invalida para variavel '" + a.name + "': tipo da variavel e '" + tVar +
                   "' mas o tipo da expressao e '" + tExpr + "'.");
         }
+        return null;
     }
 
-    private void checkRead(Read r) {
-        if (!symtab.containsKey(r.name)) {
+    @Override
+    public Void visitRead(Read r) {
+        r.slot = symbols.lookup(r.name);
+        if (r.slot < 0) {
             error("Variavel '" + r.name + "' usada em 'leggi' nao foi declarada.");
         }
+        return null;
     }
 
-    private void checkWrite(Write w) {
-        if (w.expressions == null || w.expressions.isEmpty()) return;
+    @Override
+    public Void visitWrite(Write w) {
+        if (w.expressions == null || w.expressions.isEmpty()) return null;
         for (Expression expr : w.expressions) {
             typeOf(expr);
         }
+        return null;
     }
 
-    private void checkIf(IfStmt i) {
-        String condType = typeOf(i.cond);
-        if (!condType.equals("booleano")) {
+    @Override
+    public Void visitIf(IfStmt i) {
+        Type condType = typeOf(i.cond);
+        if (condType != Type.BOOLEANO) {
             error("Condicao do comando 'se' deve ser do tipo 'booleano', mas foi '" + condType + "'.");
         }
-        visitBlock(i.thenBlock);
         if (i.elseBlock != null) {
-            visitBlock(i.elseBlock);
+            schedule(i.elseBlock);
         }
+        schedule(i.thenBlock);
+        return null;
     }
 
-    private void checkWhile(WhileStmt w) {
-        String condType = typeOf(w.cond);
-        if (!condType.equals("booleano")) {
+    @Override
+    public Void visitWhile(WhileStmt w) {
+        Type condType = typeOf(w.cond);
+        if (condType != Type.BOOLEANO) {
             error("Condiçao do comando 'mentre' deve ser do tipo 'booleano', mas foi '" + condType + "'.");
         }
-        visitBlock(w.block);
+        schedule(w.block);
+        return null;
     }
 
-    private void checkFor(ForStmt f) {
-        checkAssign(f.init);
+    @Override
+    public Void visitFor(ForStmt f) {
+        visitAssignment(f.init);
 
-        String condType = typeOf(f.cond);
-        if (!condType.equals("booleano")) {
+        Type condType = typeOf(f.cond);
+        if (condType != Type.BOOLEANO) {
             error("Condicao do comando 'per' deve ser do tipo 'booleano', mas foi '" + condType + "'.");
         }
-        checkAssign(f.update);
-        visitBlock(f.block);
+        visitAssignment(f.update);
+        schedule(f.block);
+        return null;
     }
 
-    private void checkReturn(ReturnStmt r) {
+    @Override
+    public Void visitReturn(ReturnStmt r) {
         typeOf(r.expr);
+        return null;
     }
 
-    private void checkBreak(BreakStmt b) {
+    @Override
+    public Void visitBreak(BreakStmt b) {
+        return null;
     }
 
-    private String typeOf(Expression e) {
+    // Types are assigned bottom-up from an explicit stack, left operand before right, so that when
+    // visitBinary runs both of its operands are already typed and its typeOf calls just read them.
+    private Type typeOf(Expression e) {
         if (e == null) error("Tentativa de obter tipo de expressao nula.");
-        String exprClassName = e.getClass().getSimpleName();
-        switch (exprClassName) {
-            case "Literal":
-                Object v = ((Literal)e).value;
-                if (v instanceof Integer) return "intero";
-                if (v instanceof Double)  return "decimale";
-                if (v instanceof Boolean) return "booleano";
-                if (v instanceof String)  return "testo";
-                error("Tipo de literal desconhecido: " + v.getClass().getName());
-                return "desconhecido";
-            case "Variable":
-                String name = ((Variable)e).name;
-                if (!symtab.containsKey(name)) {
-                    error("Uso da variavel nao declarada: '" + name + "'.");
+        if (e.type != null) return e.type;
+        Expression[] stack = exprStack;
+        int top = 0;
+        stack[top++] = e;
+        while (top > 0) {
+            Expression x = stack[top - 1];
+            if (x instanceof BinaryExpr b && (b.left.type == null || b.right.type == null)) {
+                if (top == stack.length) {
+                    stack = exprStack = Arrays.copyOf(stack, top * 2);
                 }
-                return symtab.get(name);
-            case "BinaryExpr":
-                BinaryExpr b = (BinaryExpr)e;
-                String lt = typeOf(b.left);
-                String rt = typeOf(b.right);
-                String op = b.op;
-
-                if (Set.of("piu", "meno", "moltiplica", "diviso", "%").contains(op)) {
-                    if ((lt.equals("intero") || lt.equals("decimale")) &&
-                        (rt.equals("intero") || rt.equals("decimale"))) {
-                        if (op.equals("%") && (lt.equals("decimale") || rt.equals("decimale"))) {
-                            error("Operador '%' nao pode ser usado com tipos 'decimale'.");
-                        }
-                        return (lt.equals("decimale") || rt.equals("decimale")) ? "decimale" : "intero";
-                    } else if (lt.equals("testo") && op.equals("piu") && rt.equals("testo")) {
-                        return "testo";
-                    } else {
-                        error("Operador aritmetico '" + op + "' aplicado a tipos incompatieis: " + lt + " e " + rt + ".");
-                    }
+                stack[top++] = b.left.type == null ? b.left : b.right;
+                continue;
+            }
+            x.type = x.accept(this);
+            stack[--top] = null;
+        }
+        return e.type;
+    }
+
+    @Override
+    public Type visitLiteral(Literal l) {
+        Object v = l.value;
+        if (v instanceof Integer) return Type.INTERO;
+        if (v instanceof Double)  return Type.DECIMALE;
+        if (v instanceof Boolean) return Type.BOOLEANO;
+        if (v instanceof String)  return Type.TESTO;
+        error("Tipo de literal desconhecido: " + v.getClass().getName());
+        return null;
+    }
+
+    @Override
+    public Type visitVariable(Variable v) {
+        v.slot = symbols.lookup(v.name);
+        if (v.slot < 0) {
+            error("Uso da variavel nao declarada: '" + v.name + "'.");
+        }
+        return symbols.type(v.slot);
+    }
+
+    @Override
+    public Type visitBinary(BinaryExpr b) {
+        Type lt = typeOf(b.left);
+        Type rt = typeOf(b.right);
+        String op = b.op;
+
+        if (ARITHMETIC_OPS.contains(op)) {
+            if (lt.isNumeric() && rt.isNumeric()) {
+                if (op.equals("%") && (lt == Type.DECIMALE || rt == Type.DECIMALE)) {
+                    error("Operador '%' nao pode ser usado com tipos 'decimale'.");
                 }
-                error("Operador binario desconhecido ou mal utilizado em expressao: '" + op + "'.");
-                return "desconhecido";
-            default:
-                error("Tipo de expressao desconhecido para anaise semantica: " + exprClassName);
-                return "desconhecido";
+                return (lt == Type.DECIMALE || rt == Type.DECIMALE) ? Type.DECIMALE : Type.INTERO;
+            } else if (lt == Type.TESTO && op.equals("piu") && rt == Type.TESTO) {
+                return Type.TESTO;
+            } else {
+                error("Operador aritmetico '" + op + "' aplicado a tipos incompatieis: " + lt + " e " + rt + ".");
+            }
+        }
+        error("Operador binario desconhecido ou mal utilizado em expressao: '" + op + "'.");
+        return null;
+    }
+
+    private Type typeOf(Condition c) {
+        if (c.type == null) {
+            c.type = attribute(c);
         }
+        return c.type;
     }
 
-    private String typeOf(Condition c) {
+    private Type attribute(Condition c) {
         if (c.singleBooleanExpression != null) {
-            String exprType = typeOf(c.singleBooleanExpression);
-            if (!exprType.equals("booleano")) {
+            Type exprType = typeOf(c.singleBooleanExpression);
+            if (exprType != Type.BOOLEANO) {
                 error("Condicao esperava uma expressao do tipo 'booleano', mas obteve '" + exprType + "'.");
             }
-            return "booleano";
+            return Type.BOOLEANO;
         } else {
-            String lt = typeOf(c.left);
-            String rt = typeOf(c.right);
-            boolean numericComparison = (lt.equals("intero") || lt.equals("decimale")) &&
-                                        (rt.equals("intero") || rt.equals("decimale"));
-            boolean stringComparison = lt.equals("testo") && rt.equals("testo") && 
-                                       (c.op.equals("uguale") || c.op.equals("diverso"));
-            boolean booleanComparison = lt.equals("booleano") && rt.equals("booleano") && 
-                                        (c.op.equals("uguale") || c.op.equals("diverso"));
-
-            if (numericComparison) {
-            } else if (stringComparison || booleanComparison) {
-            }
-             else if (!lt.equals(rt)) {
-                 error("Comparacao '" + c.op + "' entre tipos incompativeis: " + lt + " e " + rt + ".");
+            Type lt = typeOf(c.left);
+            Type rt = typeOf(c.right);
+            boolean equality = c.op.equals("uguale") || c.op.equals("diverso");
+            boolean numericComparison = lt.isNumeric() && rt.isNumeric();
+
+            if (!numericComparison && lt != rt) {
+                error("Comparacao '" + c.op + "' entre tipos incompativeis: " + lt + " e " + rt + ".");
             }
-            if ((lt.equals("testo") || lt.equals("booleano")) && 
-                !(c.op.equals("uguale") || c.op.equals("diverso"))) {
+            if ((lt == Type.TESTO || lt == Type.BOOLEANO) && !equality) {
                 error("Operador '" + c.op + "' nao e valido para tipos '" + lt + "'. Use 'uguale' ou 'diverso'.");
             }
-            return "booleano";
+            return Type.BOOLEANO;
         }
     }
 
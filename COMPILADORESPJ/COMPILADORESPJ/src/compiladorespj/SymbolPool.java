@@ -0,0 +1,68 @@
+package compiladorespj;
+
+import java.util.Arrays;
+
+public final class SymbolPool {
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    private int[] table = new int[128];
+    private int size;
+
+    int intern(int h, char[] buf, int off, int len) {
+        int mask = table.length - 1;
+        int s = mix(h) & mask;
+        while (table[s] != 0) {
+            int id = table[s] - 1;
+            if (hashes[id] == h && matches(names[id], buf, off, len)) {
+                return id;
+            }
+            s = (s + 1) & mask;
+        }
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = new String(buf, off, len);
+        hashes[id] = h;
+        table[s] = id + 1;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static boolean matches(String name, char[] buf, int off, int len) {
+        if (name.length() != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != buf[off + i]) return false;
+        }
+        return true;
+    }
+
+    private static int mix(int h) {
+        h *= 0x9E3779B1;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash() {
+        int[] t = new int[table.length * 2];
+        int mask = t.length - 1;
+        for (int id = 0; id < size; id++) {
+            int s = mix(hashes[id]) & mask;
+            while (t[s] != 0) {
+                s = (s + 1) & mask;
+            }
+            t[s] = id + 1;
+        }
+        table = t;
+    }
+}
@@ -0,0 +1,61 @@
+package compiladorespj;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public final class SymbolTable {
+    private final HashMap<String, Integer> visible = new HashMap<>();
+    private String[] names = new String[16];
+    private Type[] types = new Type[16];
+    private boolean[] consts = new boolean[16];
+    private int size;
+    private int[] live = new int[16];
+    private int liveCount;
+    private int[] scopeStarts = new int[8];
+    private int depth;
+
+    public void enterScope() {
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        }
+        scopeStarts[depth++] = liveCount;
+    }
+
+    public void exitScope() {
+        int start = scopeStarts[--depth];
+        while (liveCount > start) {
+            int slot = live[--liveCount];
+            visible.remove(names[slot], slot);
+        }
+    }
+
+    public int declare(String name, Type type, boolean isConst) {
+        if (visible.containsKey(name)) return -1;
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            types = Arrays.copyOf(types, capacity);
+            consts = Arrays.copyOf(consts, capacity);
+        }
+        if (liveCount == live.length) {
+            live = Arrays.copyOf(live, liveCount * 2);
+        }
+        int slot = size++;
+        live[liveCount++] = slot;
+        names[slot] = name;
+        types[slot] = type;
+        consts[slot] = isConst;
+        visible.put(name, slot);
+        return slot;
+    }
+
+    public int lookup(String name) {
+        Integer slot = visible.get(name);
+        return slot != null ? slot : -1;
+    }
+
+    public int size() { return size; }
+    public String name(int slot) { return names[slot]; }
+    public Type type(int slot) { return types[slot]; }
+    public boolean isConst(int slot) { return consts[slot]; }
+}
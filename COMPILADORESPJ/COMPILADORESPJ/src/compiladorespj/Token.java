@@ -1,6 +1,19 @@
 package compiladorespj;
 
 public class Token {
+    public static final int EOF = 0;
+    public static final int ID = 1;
+    public static final int KEYWORD = 2;
+    public static final int OPERATOR = 3;
+    public static final int NUM_INT = 4;
+    public static final int NUM_DEC = 5;
+    public static final int STRING = 6;
+    public static final int SYMBOL = 7;
+
+    private static final String[] TIPOS = {
+        "EOF", "ID", "KEYWORD", "OPERATOR", "NUM_INT", "NUM_DEC", "STRING", "SYMBOL"
+    };
+
     private final String tipo;
     private final String lexema;
 
@@ -9,6 +22,10 @@ public class Token {
         this.lexema = lexema;
     }
 
+    public static String typeName(int kind) {
+        return TIPOS[kind];
+    }
+
     public String getTipo() { return tipo; }
     public String getLexema() { return lexema; }
 
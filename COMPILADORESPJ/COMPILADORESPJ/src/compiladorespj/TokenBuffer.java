@@ -0,0 +1,109 @@
+package compiladorespj;
+
+import java.util.Arrays;
+
+public final class TokenBuffer {
+    private final CharSequence source;
+    private final SymbolPool symbols;
+    private int[] kinds;
+    private int[] starts;
+    private int[] ends;
+    private int[] values;
+    private int size;
+
+    TokenBuffer(CharSequence source, SymbolPool symbols) {
+        this.source = source;
+        this.symbols = symbols;
+        int capacity = Math.max(16, source.length() / 6);
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+        this.values = new int[capacity];
+    }
+
+    void add(int kind, int start, int end, int value) {
+        if (size == kinds.length) {
+            int capacity = size + (size >> 1);
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        kinds[size] = kind;
+        starts[size] = start;
+        ends[size] = end;
+        values[size] = value;
+        size++;
+    }
+
+    public int size() { return size; }
+    public SymbolPool symbols() { return symbols; }
+
+    public int kind(int i) {
+        return i < size ? kinds[i] : TokenKind.EOF;
+    }
+
+    public int start(int i) { return starts[i]; }
+    public int end(int i) { return ends[i]; }
+
+    public int symbol(int i) {
+        return kinds[i] == TokenKind.ID ? values[i] : -1;
+    }
+
+    public String lexeme(int i) {
+        if (i >= size) return "";
+        switch (kinds[i]) {
+            case TokenKind.ID:
+                return symbols.name(values[i]);
+            case TokenKind.STRING:
+                return source.subSequence(starts[i] + 1, ends[i] - 1).toString();
+            case TokenKind.NUM_INT:
+            case TokenKind.NUM_DEC:
+                return source.subSequence(starts[i], ends[i]).toString();
+            default:
+                return TokenKind.lexeme(kinds[i]);
+        }
+    }
+
+    public Token token(int i) {
+        return new Token(Token.typeName(TokenKind.category(kind(i))), lexeme(i));
+    }
+
+    public int line(int i) {
+        int limit = i < size ? starts[i] : source.length();
+        int line = 1;
+        for (int k = 0; k < limit; k++) {
+            if (source.charAt(k) == '\n') line++;
+        }
+        return line;
+    }
+
+    public TokenCursor cursor() {
+        return new Cursor();
+    }
+
+    private final class Cursor implements TokenCursor {
+        private int pos = 0;
+
+        @Override public int kind() { return TokenBuffer.this.kind(pos); }
+        @Override public String lexeme() { return TokenBuffer.this.lexeme(pos); }
+        @Override public Token token() { return TokenBuffer.this.token(pos); }
+        @Override public int index() { return pos; }
+        @Override public int line() { return TokenBuffer.this.line(pos); }
+
+        @Override
+        public boolean is(int kind) {
+            return TokenBuffer.this.kind(pos) == kind;
+        }
+
+        @Override
+        public boolean atEnd() {
+            return pos >= size;
+        }
+
+        @Override
+        public void advance() {
+            pos++;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package compiladorespj;
+
+public interface TokenCursor {
+    int kind();
+    String lexeme();
+    Token token();
+    int index();
+    int line();
+    boolean is(int kind);
+    boolean atEnd();
+    void advance();
+}
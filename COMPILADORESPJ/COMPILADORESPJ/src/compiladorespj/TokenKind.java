@@ -0,0 +1,109 @@
+package compiladorespj;
+
+public final class TokenKind {
+    public static final int EOF = 0;
+    public static final int ID = 1;
+    public static final int NUM_INT = 2;
+    public static final int NUM_DEC = 3;
+    public static final int STRING = 4;
+
+    public static final int PROGRAMMA = 5;
+    public static final int FINEPROG = 6;
+    public static final int VAR = 7;
+    public static final int COST = 8;
+    public static final int INTERO = 9;
+    public static final int DECIMALE = 10;
+    public static final int TESTO = 11;
+    public static final int BOOLEANO = 12;
+    public static final int LEGGI = 13;
+    public static final int SCRIVI = 14;
+    public static final int SE = 15;
+    public static final int ALLORA = 16;
+    public static final int ALTRIMENTI = 17;
+    public static final int FINESE = 18;
+    public static final int MENTRE = 19;
+    public static final int FAI = 20;
+    public static final int FINEMENTRE = 21;
+    public static final int PER = 22;
+    public static final int FINEPER = 23;
+    public static final int RITORNA = 24;
+    public static final int VERO = 25;
+    public static final int FALSO = 26;
+    public static final int ASSEGNA = 27;
+    public static final int INTERROMPI = 28;
+    public static final int E = 29;
+    public static final int NON = 30;
+
+    public static final int PIU = 31;
+    public static final int MENO = 32;
+    public static final int MOLTIPLICA = 33;
+    public static final int DIVISO = 34;
+    public static final int MODULO = 35;
+    public static final int UGUALE = 36;
+    public static final int DIVERSO = 37;
+    public static final int MINORE = 38;
+    public static final int MAGGIORE = 39;
+    public static final int MINOREUGUALE = 40;
+    public static final int MAGGIOREUGUALE = 41;
+
+    public static final int PONTO = 42;
+    public static final int ABRE_PAR = 43;
+    public static final int FECHA_PAR = 44;
+    public static final int VIRGULA = 45;
+    public static final int DOIS_PONTOS = 46;
+
+    public static final int COUNT = 47;
+
+    private static final String[] LEXEMES = {
+        "", null, null, null, null,
+        "programma", "fineprog", "var", "cost",
+        "intero", "decimale", "testo", "booleano",
+        "leggi", "scrivi",
+        "se", "allora", "altrimenti", "finese",
+        "mentre", "fai", "finementre",
+        "per", "fineper",
+        "ritorna",
+        "vero", "falso",
+        "assegna",
+        "interrompi",
+        "e", "non",
+        "piu", "meno", "moltiplica", "diviso", "%",
+        "uguale", "diverso", "minore", "maggiore", "minoreuguale", "maggioreuguale",
+        ".", "(", ")", ",", ":"
+    };
+
+    private TokenKind() { }
+
+    public static String lexeme(int kind) {
+        return LEXEMES[kind];
+    }
+
+    public static int category(int kind) {
+        if (kind >= PONTO) return Token.SYMBOL;
+        if (kind >= PIU) return Token.OPERATOR;
+        if (kind >= PROGRAMMA) return Token.KEYWORD;
+        switch (kind) {
+            case ID:      return Token.ID;
+            case NUM_INT: return Token.NUM_INT;
+            case NUM_DEC: return Token.NUM_DEC;
+            case STRING:  return Token.STRING;
+            default:      return Token.EOF;
+        }
+    }
+
+    public static boolean isKeyword(int kind) {
+        return kind >= PROGRAMMA && kind < PIU;
+    }
+
+    public static long set(int... kinds) {
+        long mask = 0;
+        for (int k : kinds) {
+            mask |= 1L << k;
+        }
+        return mask;
+    }
+
+    public static boolean in(long set, int kind) {
+        return (set & (1L << kind)) != 0;
+    }
+}
@@ -0,0 +1,30 @@
+package compiladorespj;
+
+public enum Type {
+    INTERO("intero"),
+    DECIMALE("decimale"),
+    TESTO("testo"),
+    BOOLEANO("booleano");
+
+    private final String keyword;
+
+    Type(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public static Type fromKeyword(String keyword) {
+        for (Type t : values()) {
+            if (t.keyword.equals(keyword)) return t;
+        }
+        return null;
+    }
+
+    public boolean isNumeric() {
+        return this == INTERO || this == DECIMALE;
+    }
+
+    public String keyword() { return keyword; }
+
+    @Override
+    public String toString() { return keyword; }
+}
@@ -0,0 +1,90 @@
+package compiladorespj;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+// Runs Bytecode in-process, as the C++ the other backends emit would behave once compiled; leggi and
+// scrivi go through Console, which follows cin >> and cout <<.
+public final class VirtualMachine {
+    private final Bytecode program;
+
+    public VirtualMachine(Bytecode program) {
+        this.program = program;
+    }
+
+    // Returns the program's exit status, the value of ritorna or 0.
+    public int run(Reader in, Writer out) throws IOException {
+        final int[] code = program.code;
+        final int[] ints = program.intInit.clone();
+        final double[] decimals = program.decimalInit.clone();
+        final String[] texts = program.textInit.clone();
+        final Console console = new Console(in, out);
+        int pc = 0;
+        try {
+            while (pc < code.length) {
+                int a = code[pc + 1];
+                int b = code[pc + 2];
+                int c = code[pc + 3];
+                switch (code[pc]) {
+                    case Bytecode.MOVE_I:      ints[a] = ints[b]; break;
+                    case Bytecode.MOVE_D:      decimals[a] = decimals[b]; break;
+                    case Bytecode.MOVE_S:      texts[a] = texts[b]; break;
+                    case Bytecode.INT_TO_DEC:  decimals[a] = ints[b]; break;
+                    case Bytecode.ADD_I:       ints[a] = ints[b] + ints[c]; break;
+                    case Bytecode.SUB_I:       ints[a] = ints[b] - ints[c]; break;
+                    case Bytecode.MUL_I:       ints[a] = ints[b] * ints[c]; break;
+                    case Bytecode.DIV_I:       ints[a] = ints[b] / ints[c]; break;
+                    case Bytecode.MOD_I:       ints[a] = ints[b] % ints[c]; break;
+                    case Bytecode.ADD_D:       decimals[a] = decimals[b] + decimals[c]; break;
+                    case Bytecode.SUB_D:       decimals[a] = decimals[b] - decimals[c]; break;
+                    case Bytecode.MUL_D:       decimals[a] = decimals[b] * decimals[c]; break;
+                    case Bytecode.DIV_D:       decimals[a] = decimals[b] / decimals[c]; break;
+                    case Bytecode.CONCAT:      texts[a] = texts[b].concat(texts[c]); break;
+                    case Bytecode.EQ_I:        ints[a] = ints[b] == ints[c] ? 1 : 0; break;
+                    case Bytecode.NE_I:        ints[a] = ints[b] != ints[c] ? 1 : 0; break;
+                    case Bytecode.LT_I:        ints[a] = ints[b] < ints[c] ? 1 : 0; break;
+                    case Bytecode.GT_I:        ints[a] = ints[b] > ints[c] ? 1 : 0; break;
+                    case Bytecode.LE_I:        ints[a] = ints[b] <= ints[c] ? 1 : 0; break;
+                    case Bytecode.GE_I:        ints[a] = ints[b] >= ints[c] ? 1 : 0; break;
+                    case Bytecode.EQ_D:        ints[a] = decimals[b] == decimals[c] ? 1 : 0; break;
+                    case Bytecode.NE_D:        ints[a] = decimals[b] != decimals[c] ? 1 : 0; break;
+                    case Bytecode.LT_D:        ints[a] = decimals[b] < decimals[c] ? 1 : 0; break;
+                    case Bytecode.GT_D:        ints[a] = decimals[b] > decimals[c] ? 1 : 0; break;
+                    case Bytecode.LE_D:        ints[a] = decimals[b] <= decimals[c] ? 1 : 0; break;
+                    case Bytecode.GE_D:        ints[a] = decimals[b] >= decimals[c] ? 1 : 0; break;
+                    case Bytecode.EQ_S:        ints[a] = texts[b].equals(texts[c]) ? 1 : 0; break;
+                    case Bytecode.NE_S:        ints[a] = texts[b].equals(texts[c]) ? 0 : 1; break;
+                    case Bytecode.WRITE_I:
+                    case Bytecode.WRITE_B:     console.writeInt(ints[a]); break;
+                    case Bytecode.WRITE_D:     console.writeDecimal(decimals[a]); break;
+                    case Bytecode.WRITE_S:     console.writeText(texts[a]); break;
+                    case Bytecode.WRITELN:     console.writeln(); break;
+                    case Bytecode.READ_I:      ints[a] = console.readInt(ints[a]); break;
+                    case Bytecode.READ_D:      decimals[a] = console.readDecimal(decimals[a]); break;
+                    case Bytecode.READ_B:      ints[a] = console.readBoolean(ints[a]); break;
+                    case Bytecode.READ_S:      texts[a] = console.readText(texts[a]); break;
+                    case Bytecode.JUMP:        pc = b; continue;
+                    case Bytecode.JUMP_IF:     if (ints[a] != 0) { pc = b; continue; } break;
+                    case Bytecode.JUMP_UNLESS: if (ints[a] == 0) { pc = b; continue; } break;
+                    case Bytecode.IF_EQ_I:     if (ints[a] == ints[b]) { pc = c; continue; } break;
+                    case Bytecode.IF_NE_I:     if (ints[a] != ints[b]) { pc = c; continue; } break;
+                    case Bytecode.IF_LT_I:     if (ints[a] < ints[b]) { pc = c; continue; } break;
+                    case Bytecode.IF_GT_I:     if (ints[a] > ints[b]) { pc = c; continue; } break;
+                    case Bytecode.IF_LE_I:     if (ints[a] <= ints[b]) { pc = c; continue; } break;
+                    case Bytecode.IF_GE_I:     if (ints[a] >= ints[b]) { pc = c; continue; } break;
+                    case Bytecode.RETURN_I:    return a < 0 ? 0 : ints[a];
+                    case Bytecode.RETURN_D:    return (int) decimals[a];
+                    default:
+                        throw new IllegalStateException("Instrucao de bytecode invalida: " + code[pc] + " em " + pc);
+                }
+                pc += Bytecode.WIDTH;
+            }
+            return 0;
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Erro de Execucao: divisao inteira por zero.");
+        } finally {
+            console.flush();
+        }
+    }
+}